@@ -0,0 +1,207 @@
+package com.gbti.travelerslectern.gametest;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.LecternMetrics;
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.gbti.travelerslectern.utils.PlayerCooldowns;
+import com.mojang.authlib.GameProfile;
+import net.fabricmc.fabric.api.entity.FakePlayer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.gametest.v1.FabricGameTest;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.LecternBlock;
+import net.minecraft.block.entity.LecternBlockEntity;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.WrittenBookContentComponent;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.test.GameTest;
+import net.minecraft.test.GameTestException;
+import net.minecraft.test.TestContext;
+import net.minecraft.text.RawFilteredPair;
+import net.minecraft.text.Text;
+import net.minecraft.util.Hand;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Load test run by {@code ./gradlew runGametest} on a headless server. It places traveler's lecterns in the
+ * overworld, the nether and the end and has fake players read them and sneak to take their books through
+ * {@code LecternBlockMixin}, with a short cooldown so books keep respawning.
+ * <p>
+ * Server tick time percentiles, bytes allocated by the server thread per tick and the mod's own metrics are
+ * logged and written to {@code travelers_lectern_loadtest.txt} in the run directory. The size of the run is set with
+ * {@code -Dtravelers_lectern.loadtest.lecterns}, {@code .players}, {@code .ticks} and {@code .cooldown}, and
+ * {@code -Dtravelers_lectern.loadtest.maxP99Micros} fails the test if the tick p99 goes over it.
+ */
+public class LecternLoadTest implements FabricGameTest {
+
+    private static final Logger LOGGER = LogManager.getLogger("TravelersLectern");
+
+    private static final int LECTERNS = Integer.getInteger("travelers_lectern.loadtest.lecterns", 600);
+    private static final int PLAYERS = Integer.getInteger("travelers_lectern.loadtest.players", 50);
+    private static final int TICKS = Integer.getInteger("travelers_lectern.loadtest.ticks", 1200);
+    private static final int COOLDOWN_SECONDS = Integer.getInteger("travelers_lectern.loadtest.cooldown", 5);
+    private static final long MAX_P99_MICROS = Long.getLong("travelers_lectern.loadtest.maxP99Micros", 0);
+
+    private static final List<RegistryKey<World>> DIMENSIONS = List.of(World.OVERWORLD, World.NETHER, World.END);
+    private static final Path REPORT = Path.of("travelers_lectern_loadtest.txt");
+
+    // Whole server ticks, measured with tick events since that is what MSPT is made of. Fabric events can't be
+    // unregistered, so they are registered once and only record while a test runs.
+    private static final LecternMetrics.Histogram tickTimes = new LecternMetrics.Histogram();
+    private static boolean measuring;
+    private static long tickStart;
+    private static long tickAllocationStart;
+    private static long allocatedBytes;
+
+    static {
+        ServerTickEvents.START_SERVER_TICK.register(server -> {
+            tickStart = System.nanoTime();
+            tickAllocationStart = threadAllocatedBytes();
+        });
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if(!measuring) return;
+            tickTimes.record(System.nanoTime() - tickStart);
+            allocatedBytes += threadAllocatedBytes() - tickAllocationStart;
+        });
+    }
+
+    private record Placed(ServerWorld world, BlockPos pos) {}
+
+    @GameTest(templateName = EMPTY_STRUCTURE, tickLimit = 20 * 60 * 30)
+    public void lecternTraffic(TestContext context) {
+        MinecraftServer server = context.getWorld().getServer();
+        Random random = new Random(42);
+
+        List<Placed> placed = new ArrayList<>(LECTERNS);
+        for(int i = 0; i < LECTERNS; i++) {
+            ServerWorld world = server.getWorld(DIMENSIONS.get(i % DIMENSIONS.size()));
+            int index = i / DIMENSIONS.size();
+            BlockPos grid = new BlockPos(2 + (index % 32) * 2, 1, 2 + (index / 32) * 2);
+            BlockPos pos = world == context.getWorld() ? context.getAbsolutePos(grid) : grid.up(100);
+            place(world, pos, book(i % 8, random), i % 4 == 0);
+            placed.add(new Placed(world, pos));
+        }
+
+        GameProfile[] profiles = new GameProfile[PLAYERS];
+        for(int i = 0; i < PLAYERS; i++) profiles[i] = new GameProfile(UUID.nameUUIDFromBytes(("loadtest" + i).getBytes()), "loadtest" + i);
+
+        LecternMetrics.reset();
+        tickTimes.reset();
+        allocatedBytes = 0;
+        measuring = true;
+
+        int[] tick = {0};
+        context.runAtEveryTick(() -> {
+            tick[0]++;
+            // Every player acts every fourth tick, 5 interactions a second, below the default interaction throttle
+            for(int p = 0; p < PLAYERS; p++) {
+                if((tick[0] + p) % 4 != 0) continue;
+                Placed lectern = placed.get(random.nextInt(placed.size()));
+                FakePlayer player = FakePlayer.get(lectern.world(), profiles[p]);
+                player.setSneaking(random.nextInt(10) < 3);
+                interact(lectern.world(), lectern.pos(), player);
+                player.getInventory().clear();
+            }
+        });
+
+        context.runAtTick(TICKS, () -> {
+            measuring = false;
+            String report = report();
+            LOGGER.info("[TL] Load test results{}{}", System.lineSeparator(), report);
+            try {
+                Files.writeString(REPORT, report + System.lineSeparator(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch(Exception e) {
+                LOGGER.error("[TL] Error writing the load test report: {}", e.getMessage());
+            }
+
+            for(Placed lectern : placed) remove(lectern.world(), lectern.pos());
+
+            long p99 = tickTimes.getPercentileNanos(99) / 1000;
+            if(MAX_P99_MICROS > 0 && p99 > MAX_P99_MICROS) {
+                throw new GameTestException("Tick p99 of " + p99 + " us is over the limit of " + MAX_P99_MICROS + " us");
+            }
+            context.complete();
+        });
+    }
+
+    private static void place(ServerWorld world, BlockPos pos, ItemStack book, boolean perPlayer) {
+        world.setChunkForced(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()), true);
+        world.setBlockState(pos, Blocks.LECTERN.getDefaultState().with(LecternBlock.HAS_BOOK, true));
+        if(world.getBlockEntity(pos) instanceof LecternBlockEntity be) be.setBook(book.copy());
+
+        LecternObject lectern = new LecternObject(pos.asLong(), world.getTime(), COOLDOWN_SECONDS, world.getRegistryKey(),
+                TravelersLectern.books.intern(book.encode(world.getRegistryManager())));
+        if(perPlayer) lectern.setPlayerCooldowns(new PlayerCooldowns());
+        TravelersLectern.addLectern(lectern);
+    }
+
+    private static void remove(ServerWorld world, BlockPos pos) {
+        TravelersLectern.removeLectern(world.getRegistryKey(), pos.asLong());
+        world.setBlockState(pos, Blocks.AIR.getDefaultState());
+        world.setChunkForced(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()), false);
+    }
+
+    private static void interact(ServerWorld world, BlockPos pos, FakePlayer player) {
+        BlockState state = world.getBlockState(pos);
+        state.onUseWithItem(ItemStack.EMPTY, world, player, Hand.MAIN_HAND, new BlockHitResult(Vec3d.ofCenter(pos), Direction.UP, pos, false));
+    }
+
+    private static ItemStack book(int index, Random random) {
+        List<RawFilteredPair<Text>> pages = new ArrayList<>();
+        for(int i = 0; i < 50; i++) {
+            StringBuilder page = new StringBuilder(256);
+            for(int c = 0; c < 256; c++) page.append(random.nextInt(8) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+            pages.add(RawFilteredPair.of(Text.literal(page.toString())));
+        }
+
+        ItemStack book = new ItemStack(Items.WRITTEN_BOOK);
+        book.set(DataComponentTypes.WRITTEN_BOOK_CONTENT, new WrittenBookContentComponent(RawFilteredPair.of("Guide " + index), "gbti-network", 0, pages, true));
+        return book;
+    }
+
+    private static String report() {
+        long ticks = Math.max(1, tickTimes.getCount());
+        return String.format(Locale.ROOT,
+                "Lecterns: %d in %d dimensions, players: %d, ticks: %d, cooldown: %d s%n"
+                        + "Server tick: p50 %d us, p95 %d us, p99 %d us, max %d us, mean %d us%n"
+                        + "Server thread allocations: %d bytes per tick%n"
+                        + "Interactions: %d, p99 %d us, throttled %d%n"
+                        + "Respawn tick: p99 %d us, respawned %d, deferred %d%n"
+                        + "Saves: %d, %d bytes written%n"
+                        + "%s%n%s",
+                LECTERNS, DIMENSIONS.size(), PLAYERS, tickTimes.getCount(), COOLDOWN_SECONDS,
+                tickTimes.getPercentileNanos(50) / 1000, tickTimes.getPercentileNanos(95) / 1000, tickTimes.getPercentileNanos(99) / 1000,
+                tickTimes.getMaxNanos() / 1000, tickTimes.getMeanNanos() / 1000,
+                allocatedBytes / ticks,
+                LecternMetrics.interaction.getCount(), LecternMetrics.interaction.getPercentileNanos(99) / 1000, LecternMetrics.interactionsThrottled,
+                LecternMetrics.respawnTick.getPercentileNanos(99) / 1000, LecternMetrics.lecternsRespawned, LecternMetrics.lecternsDeferred,
+                LecternMetrics.saves.get(), LecternMetrics.bytesWritten.get(),
+                LecternMetrics.CSV_HEADER, LecternMetrics.toCsvLine(System.currentTimeMillis(), TravelersLectern.lecterns.size(), TravelersLectern.books.size()));
+    }
+
+    private static long threadAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,72 @@
+package com.gbti.travelerslectern.benchmark;
+
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternObject;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic lecterns and books shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    static final RegistryKey<World> OVERWORLD = RegistryKey.of(RegistryKeys.WORLD, Identifier.ofVanilla("overworld"));
+    static final int COOLDOWN_SECONDS = 1800;
+
+    private BenchmarkData() {}
+
+    /**
+     * Builds the NBT of a written book, as encoded by {@code ItemStack#encode}.
+     */
+    static NbtCompound writtenBook(String title, int pages, int charsPerPage, Random random) {
+        NbtList pageList = new NbtList();
+        StringBuilder page = new StringBuilder(charsPerPage);
+        for(int i = 0; i < pages; i++) {
+            page.setLength(0);
+            for(int c = 0; c < charsPerPage; c++) page.append(random.nextInt(8) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+            pageList.add(NbtString.of(page.toString()));
+        }
+
+        NbtCompound content = new NbtCompound();
+        content.putString("title", title);
+        content.putString("author", "gbti-network");
+        content.put("pages", pageList);
+
+        NbtCompound components = new NbtCompound();
+        components.put("minecraft:written_book_content", content);
+
+        NbtCompound item = new NbtCompound();
+        item.putString("id", "minecraft:written_book");
+        item.putInt("count", 1);
+        item.put("components", components);
+        return item;
+    }
+
+    /**
+     * Creates lecterns on a grid with cooldowns that run out at random points over one cooldown period.
+     * Every lectern shows one of {@code distinctBooks} 50 page books.
+     */
+    static List<LecternObject> lecterns(int count, int distinctBooks, BookStore store, long seed) {
+        Random random = new Random(seed);
+        BookStore.Book[] books = new BookStore.Book[distinctBooks];
+        for(int i = 0; i < distinctBooks; i++) books[i] = store.intern(writtenBook("Guide " + i, 50, 256, random));
+
+        List<LecternObject> lecterns = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            long pos = BlockPos.asLong((i % 1000) * 2, 64, (i / 1000) * 2);
+            long lastTimeUsed = random.nextInt(COOLDOWN_SECONDS * 20);
+            lecterns.add(new LecternObject(pos, lastTimeUsed, COOLDOWN_SECONDS, OVERWORLD, books[i % distinctBooks]));
+        }
+        return lecterns;
+    }
+}
@@ -0,0 +1,83 @@
+package com.gbti.travelerslectern.benchmark;
+
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import net.minecraft.SharedConstants;
+import net.minecraft.Bootstrap;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.StringNbtReader;
+import net.minecraft.registry.BuiltinRegistries;
+import net.minecraft.registry.RegistryWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * The book resolution done by {@code LecternBlockMixin.onUseWithItem} on every click of a traveler's lectern.
+ * The mixin itself can't run outside the game, so this measures the calls it makes.
+ */
+@State(Scope.Benchmark)
+public class BookResolutionBenchmark {
+
+    @Param({"1", "50", "100"})
+    public int pages;
+
+    private RegistryWrapper.WrapperLookup registries;
+    private LecternObject lectern;
+    private ItemStack lecternBook;
+    private long heldFingerprint; // what the mixin remembers on the lectern block entity
+
+    @Setup
+    public void setup() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        registries = BuiltinRegistries.createWrapperLookup();
+
+        BookStore store = new BookStore();
+        lectern = new LecternObject(0L, 0L, BenchmarkData.COOLDOWN_SECONDS, BenchmarkData.OVERWORLD,
+                store.intern(BenchmarkData.writtenBook("Guide", pages, 256, new Random(1))));
+        lecternBook = lectern.getBook(registries); // the book the lectern block entity holds
+        heldFingerprint = lectern.getBookFingerprint();
+    }
+
+    /**
+     * The interaction path before the book cache: SNBT round trip, decode, deep compare.
+     */
+    @Benchmark
+    public boolean snbtRoundTrip() throws CommandSyntaxException {
+        NbtCompound nbt = StringNbtReader.parse(lectern.getItem().asString());
+        ItemStack book = ItemStack.fromNbt(registries, nbt).orElseThrow();
+        return ItemStack.areEqual(lecternBook, book);
+    }
+
+    /**
+     * The interaction path now: compare against the shared decoded template.
+     */
+    @Benchmark
+    public boolean cachedTemplate() {
+        return ItemStack.areEqual(lecternBook, lectern.getBookTemplate(registries));
+    }
+
+    /**
+     * The interaction path when the lectern block entity still holds the book last put in, see
+     * {@code LecternBlockMixin.syncBook}. The fingerprint kept by the block entity mixin is a plain field here.
+     */
+    @Benchmark
+    public boolean fingerprintHit() {
+        return heldFingerprint == lectern.getBookFingerprint() && !lecternBook.isEmpty();
+    }
+
+    /**
+     * Taking the book or respawning it, which hands out a copy of the template.
+     */
+    @Benchmark
+    public ItemStack cachedCopy() {
+        return lectern.getBook(registries);
+    }
+}
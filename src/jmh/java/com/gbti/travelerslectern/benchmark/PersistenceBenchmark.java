@@ -0,0 +1,77 @@
+package com.gbti.travelerslectern.benchmark;
+
+import com.gbti.travelerslectern.storage.JsonLecternStorage;
+import com.gbti.travelerslectern.storage.LecternStorage;
+import com.gbti.travelerslectern.storage.NbtLecternStorage;
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternObject;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Saving and loading the lectern data in both storage formats. Lecterns share 100 distinct 50 page books,
+ * the size of the written file is reported next to the save time as {@code save:fileBytes}.
+ */
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int lecterns;
+
+    @Param({"json", "nbt"})
+    public String format;
+
+    private Path directory;
+    private LecternStorage storage;
+    private List<LecternObject> data;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("travelers-lectern-bench");
+        storage = format.equals("nbt") ? new NbtLecternStorage(directory.resolve("travelers_lecterns.dat"))
+                : new JsonLecternStorage(directory.resolve("travelers_lecterns.json"));
+        data = BenchmarkData.lecterns(lecterns, 100, new BookStore(), 1);
+
+        storage.save(data); // for load
+    }
+
+    /**
+     * The size of the file written by the last save, reported as is at the end of every iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class FileSize {
+        public long fileBytes;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try(Stream<Path> files = Files.walk(directory)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public long save(FileSize size) throws IOException {
+        size.fileBytes = storage.save(data);
+        return size.fileBytes;
+    }
+
+    @Benchmark
+    public List<LecternObject> load() throws IOException {
+        return storage.load();
+    }
+}
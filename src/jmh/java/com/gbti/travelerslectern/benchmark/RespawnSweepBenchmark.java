@@ -0,0 +1,64 @@
+package com.gbti.travelerslectern.benchmark;
+
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.gbti.travelerslectern.utils.RespawnScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * The {@code END_SERVER_TICK} respawn work per tick, with every lectern's book being taken again as soon as it respawns.
+ * {@link #fullScan} is the once-a-second walk over every lectern that the scheduler replaced, amortised per tick.
+ */
+@State(Scope.Benchmark)
+public class RespawnSweepBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int lecterns;
+
+    private List<LecternObject> all;
+    private RespawnScheduler scheduler;
+    private long now;
+    private int respawned;
+
+    @Setup
+    public void setup() {
+        all = BenchmarkData.lecterns(lecterns, 10, new BookStore(), 1);
+        scheduler = new RespawnScheduler();
+        scheduler.rebuild(all);
+        now = 0;
+    }
+
+    @Benchmark
+    public int scheduledTick() {
+        now++;
+        respawned = 0;
+        scheduler.pollDue(now, lectern -> {
+            lectern.setLastTimeUsed(now);
+            scheduler.schedule(lectern);
+            respawned++;
+        });
+        return respawned;
+    }
+
+    @Benchmark
+    public int fullScan() {
+        now++;
+        int due = 0;
+        if(now % 20 == 0) {
+            for(LecternObject lectern : all) {
+                long timeSinceLastUse = now - lectern.getLastTimeUsed();
+                if(timeSinceLastUse >= lectern.getCooldown() * 20L) {
+                    lectern.setLastTimeUsed(now);
+                    due++;
+                }
+            }
+        }
+        return due;
+    }
+}
@@ -1,78 +1,94 @@
 package com.gbti.travelerslectern;
 
+import com.gbti.travelerslectern.api.TravelersLecternApi;
+import com.gbti.travelerslectern.storage.BookBlobFile;
+import com.gbti.travelerslectern.storage.CooldownJournal;
+import com.gbti.travelerslectern.storage.JsonLecternStorage;
+import com.gbti.travelerslectern.storage.LecternReplicator;
+import com.gbti.travelerslectern.storage.LecternStorage;
+import com.gbti.travelerslectern.storage.NbtLecternStorage;
+import com.gbti.travelerslectern.storage.RegionLecternStorage;
+import com.gbti.travelerslectern.storage.WorldLecternState;
+import com.gbti.travelerslectern.utils.LecternLog;
+import com.gbti.travelerslectern.utils.LecternMetrics;
 import com.gbti.travelerslectern.utils.LecternObject;
-import com.google.common.reflect.TypeToken;
-import com.google.gson.*;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
 
 import java.util.*;
-import net.minecraft.nbt.NbtElement;
-import net.minecraft.world.World;
-import net.minecraft.registry.RegistryKey;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class FileManager {
 
     private static final Logger LOGGER = LogManager.getLogger("TravelersLectern");
-
-    private static final GsonBuilder gsonBuilder = new GsonBuilder()
-            .setPrettyPrinting()
-            .registerTypeAdapter(NbtElement.class,
-                    (JsonSerializer<NbtElement>) (nbtElement, typeOfSrc, context) -> new JsonPrimitive(nbtElement.asString()))
-            .registerTypeAdapter(LecternObject.class,
-                    (JsonSerializer<LecternObject>) (lectern, type, context) -> {
-                        JsonObject json = new JsonObject();
-                        json.addProperty("lastTimeUsed", lectern.getLastTimeUsed());
-                        json.addProperty("cooldown", lectern.getCooldown());
-                        json.add("worldKey", context.serialize(lectern.getWorldKey()));
-                        json.addProperty("item", lectern.getItem().asString());
-                        return json;
-                    })
-            .registerTypeAdapter(LecternObject.class,
-                    (JsonDeserializer<LecternObject>) (json, typeOfT, context) -> {
-                        try {
-                            JsonObject jsonObject = json.getAsJsonObject();
-                            TravelersLectern.logDebug("[TL Debug] Lectern JSON: {}", jsonObject);
-                            
-                            long lastTimeUsed = jsonObject.get("lastTimeUsed").getAsLong();
-                            int cooldown = jsonObject.get("cooldown").getAsInt();
-                            TravelersLectern.logDebug("[TL Debug] Parsed time and cooldown: {} {}", lastTimeUsed, cooldown);
-                            
-                            RegistryKey<World> worldKey = context.deserialize(jsonObject.get("worldKey"), new TypeToken<RegistryKey<World>>(){}.getType());
-                            TravelersLectern.logDebug("[TL Debug] Parsed worldKey: {}", worldKey);
-                            
-                            // Get the raw NBT string from the item field
-                            JsonElement itemElement = jsonObject.get("item");
-                            String nbtString;
-                            
-                            if (itemElement.isJsonPrimitive()) {
-                                // Direct string format
-                                nbtString = itemElement.getAsString();
-                            } else {
-                                TravelersLectern.logDebug("[TC Error] Unexpected item format. Expected string but got: {}", itemElement.getClass().getSimpleName());
-                                throw new JsonParseException("Lectern item must be a string containing NBT data");
-                            }
-                            
-                            TravelersLectern.logDebug("[TL Debug] Parsing NBT string: {}", nbtString);
-                            NbtElement item = net.minecraft.nbt.StringNbtReader.parse(nbtString);
-                            
-                            return new LecternObject(lastTimeUsed, cooldown, worldKey, item);
-                        } catch (Exception e) {
-                            TravelersLectern.logDebug("[TC Error] Failed to parse lectern: {}", e.getMessage());
-                            TravelersLectern.logDebug("[TC Error] Full stack trace:", e);
-                            throw new JsonParseException("Error parsing lectern data: " + e.getMessage(), e);
-                        }
-                    })
-            .enableComplexMapKeySerialization()
-            .serializeNulls();
-
    
     public static Map<String, String> COLORS = new HashMap<>();
     public static List<String> joinList = new ArrayList<>();
     private static final String CONFIG_DIR = "config/travelers-lectern";
+    private static final Path JSON_FILE = Path.of(CONFIG_DIR, "travelers_lecterns.json");
+    private static final Path NBT_FILE = Path.of(CONFIG_DIR, "travelers_lecterns.dat");
+    private static final Path METRICS_FILE = Path.of(CONFIG_DIR, "metrics.csv");
+    private static final Path JOURNAL_FILE = Path.of(CONFIG_DIR, "travelers_lecterns.journal");
+    private static final Path REGIONS_DIR = Path.of(CONFIG_DIR, "regions");
+    private static final Path BOOK_BLOB_FILE = Path.of(CONFIG_DIR, "books.blob");
+    private static final Path REPLICATION_ID_FILE = Path.of(CONFIG_DIR, "replication.id");
+    private static final Path REPLICATION_OFFSET_FILE = Path.of(CONFIG_DIR, "replication.offset");
+
+    public static String storageFormat = "json";
+    private static LecternStorage storage = new JsonLecternStorage(JSON_FILE);
+
+    // Region storage, only set with storage_format=region
+    public static int regionEvictSeconds = 300;
+    private static RegionLecternStorage regions;
+
+    // World storage, only used with storage_format=world. Minecraft saves these states with the world
+    private static boolean worldStorage = false;
+    private static final Reference2ObjectOpenHashMap<RegistryKey<World>, WorldLecternState> worldStates = new Reference2ObjectOpenHashMap<>();
+    private static Path pendingMigration; // the single file being moved into the worlds, renamed once they saved it
+
+    // Write-behind state, mutations only mark the store dirty and the tick hands a snapshot to the writer thread
+    public static int saveIntervalSeconds = 5;
+    public static boolean metricsCsv = false;
+    public static int interactionsPerSecond = 10;
+    public static int respawnsPerTick = 64;
+    public static int respawnBudgetMicros = 2000;
+    public static int respawnJitterSeconds = 30;
+    public static int auditLecternsPerTick = 16;
+    public static int bookMemoryKb = 0;
+    private static boolean dirty = false;
+    private static int ticksSinceSave = 0;
+    private static final AtomicReference<List<LecternObject>> pendingSnapshot = new AtomicReference<>();
+
+    // Cooldown journal, timestamp changes are appended as fixed size records instead of rewriting the snapshot
+    public static boolean cooldownJournal = false;
+    private static final int JOURNAL_COMPACT_RECORDS = 10_000;
+    private static final CooldownJournal journal = new CooldownJournal(JOURNAL_FILE);
+    public static String replicationDir = "";
+    private static LecternReplicator replicator;
+
+    private static ByteBuffer journalBuffer = ByteBuffer.allocate(CooldownJournal.RECORD_SIZE * 256);
+    private static int journalRecords = 0;
+
+    private static final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TravelersLectern-IO");
+        thread.setDaemon(true);
+        return thread;
+    });
    
     public static void readFiles() {
 
@@ -84,7 +100,20 @@ public class FileManager {
             File configFile = new File("config/travelers-lectern/travelers_lectern_config.txt");
             if(configFile.createNewFile()) {
                 BufferedWriter writer = new BufferedWriter(new FileWriter(configFile));
-                writer.write("debug_logging=false");
+                writer.write("debug_logging=false\n");
+                writer.write("debug_categories=\n");
+                writer.write("save_interval_seconds=" + saveIntervalSeconds + "\n");
+                writer.write("storage_format=" + storageFormat + "\n");
+                writer.write("metrics_csv=" + metricsCsv + "\n");
+                writer.write("cooldown_journal=" + cooldownJournal + "\n");
+                writer.write("region_evict_seconds=" + regionEvictSeconds + "\n");
+                writer.write("interactions_per_second=" + interactionsPerSecond + "\n");
+                writer.write("respawns_per_tick=" + respawnsPerTick + "\n");
+                writer.write("respawn_budget_micros=" + respawnBudgetMicros + "\n");
+                writer.write("respawn_jitter_seconds=" + respawnJitterSeconds + "\n");
+                writer.write("audit_lecterns_per_tick=" + auditLecternsPerTick + "\n");
+                writer.write("book_memory_kb=" + bookMemoryKb + "\n");
+                writer.write("replication_dir=" + replicationDir);
                 writer.close();
             } else {
                 Scanner reader = new Scanner(configFile);
@@ -98,10 +127,45 @@ public class FileManager {
                         // Use direct logging for debug setting since logDebug isn't ready yet
                         TravelersLectern.debugLoggingEnabled = debugValue.equals("true");
                         LOGGER.info("[TL] Set debugLoggingEnabled to: {}", TravelersLectern.debugLoggingEnabled);
+                    } else if(line.startsWith("debug_categories=")) {
+                        LecternLog.enable(line.substring(line.indexOf('=') + 1));
+                    } else if(line.startsWith("save_interval_seconds=")) {
+                        try {
+                            saveIntervalSeconds = Math.max(0, Integer.parseInt(line.substring(line.indexOf('=') + 1).trim()));
+                        } catch(NumberFormatException e) {
+                            LOGGER.warn("[TL] Invalid save_interval_seconds, keeping {}", saveIntervalSeconds);
+                        }
+                    } else if(line.startsWith("storage_format=")) {
+                        storageFormat = line.substring(line.indexOf('=') + 1).trim().toLowerCase(Locale.ROOT);
+                    } else if(line.startsWith("metrics_csv=")) {
+                        metricsCsv = line.substring(line.indexOf('=') + 1).trim().equals("true");
+                    } else if(line.startsWith("cooldown_journal=")) {
+                        cooldownJournal = line.substring(line.indexOf('=') + 1).trim().equals("true");
+                    } else if(line.startsWith("region_evict_seconds=")) {
+                        try {
+                            regionEvictSeconds = Math.max(0, Integer.parseInt(line.substring(line.indexOf('=') + 1).trim()));
+                        } catch(NumberFormatException e) {
+                            LOGGER.warn("[TL] Invalid region_evict_seconds, keeping {}", regionEvictSeconds);
+                        }
+                    } else if(line.startsWith("interactions_per_second=")) {
+                        interactionsPerSecond = parseNonNegative(line, interactionsPerSecond);
+                    } else if(line.startsWith("respawns_per_tick=")) {
+                        respawnsPerTick = parseNonNegative(line, respawnsPerTick);
+                    } else if(line.startsWith("respawn_budget_micros=")) {
+                        respawnBudgetMicros = parseNonNegative(line, respawnBudgetMicros);
+                    } else if(line.startsWith("respawn_jitter_seconds=")) {
+                        respawnJitterSeconds = parseNonNegative(line, respawnJitterSeconds);
+                    } else if(line.startsWith("audit_lecterns_per_tick=")) {
+                        auditLecternsPerTick = parseNonNegative(line, auditLecternsPerTick);
+                    } else if(line.startsWith("book_memory_kb=")) {
+                        bookMemoryKb = parseNonNegative(line, bookMemoryKb);
+                    } else if(line.startsWith("replication_dir=")) {
+                        replicationDir = line.substring(line.indexOf('=') + 1).trim();
                     }
                 }
                 reader.close();
             }
+            if(TravelersLectern.debugLoggingEnabled) LecternLog.enableAll();
 
 
         } catch (Exception e) {
@@ -111,40 +175,383 @@ public class FileManager {
 
     }
 
+    private static int parseNonNegative(String line, int fallback) {
+        try {
+            return Math.max(0, Integer.parseInt(line.substring(line.indexOf('=') + 1).trim()));
+        } catch(NumberFormatException e) {
+            LOGGER.warn("[TL] Invalid {}, keeping {}", line.substring(0, line.indexOf('=')), fallback);
+            return fallback;
+        }
+    }
+
+    /**
+     * Marks the lectern data as changed, it is written by the background writer on the next save interval.
+     */
+    public static void markDirty() {
+        dirty = true;
+        TravelersLecternApi.markChanged();
+    }
+
+    /**
+     * Marks a lectern that changed, was added or was removed. With region storage only its region is saved.
+     */
+    public static void markDirty(LecternObject lectern) {
+        TravelersLecternApi.markChanged();
+        if(regions != null) {
+            regions.markDirty(lectern);
+        } else if(worldStorage) {
+            WorldLecternState state = worldStates.get(lectern.getWorldKey());
+            if(state != null) state.markDirty();
+        } else {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Makes sure the lectern at a position is in the registry if it exists, loading its region when region storage is used.
+     */
+    public static void ensureLoaded(RegistryKey<World> worldKey, long pos) {
+        if(regions != null) regions.ensureLoaded(worldKey, pos);
+    }
+
+    public static void onChunkLoad(RegistryKey<World> worldKey, long chunkPos) {
+        if(regions != null) regions.onChunkLoad(worldKey, chunkPos);
+    }
+
+    public static void onChunkUnload(RegistryKey<World> worldKey, long chunkPos) {
+        if(regions != null) regions.onChunkUnload(worldKey, chunkPos);
+    }
+
+    /**
+     * Attaches the lecterns saved with a world as it loads, when world storage is used.
+     */
+    public static void onWorldLoad(ServerWorld world) {
+        if(!worldStorage) return;
+
+        RegistryKey<World> worldKey = world.getRegistryKey();
+        WorldLecternState state = world.getPersistentStateManager().getOrCreate(WorldLecternState.type(worldKey), WorldLecternState.ID);
+        worldStates.put(worldKey, state);
+
+        List<LecternObject> loaded = state.takeLoaded();
+        loaded.forEach(TravelersLectern::attachLectern);
+        // Lecterns from the config folder are only safe once the world has saved them, also when merged into existing ones
+        if(pendingMigration != null && !TravelersLectern.lecterns.getWorld(worldKey).isEmpty()) state.markDirty();
+        LOGGER.info("[TL] Loaded {} lecterns saved with {}", loaded.size(), worldKey.getValue());
+    }
+
+    public static void onWorldUnload(ServerWorld world) {
+        worldStates.remove(world.getRegistryKey());
+    }
+
+    /**
+     * Called after the server saved its worlds. Once every world holding lecterns migrated from the config folder
+     * has written them, the file they came from is renamed, so a crash before that loads it again.
+     */
+    public static void onWorldsSaved(MinecraftServer server) {
+        if(pendingMigration == null) return;
+
+        for(RegistryKey<World> worldKey : TravelersLectern.lecterns.getWorldKeys()) {
+            ServerWorld world = server.getWorld(worldKey);
+            WorldLecternState state = worldStates.get(worldKey);
+            if(world == null || state == null || TravelersLectern.lecterns.getWorld(worldKey).isEmpty()) continue; // unknown dimensions stay in the old file
+            if(state.isDirty() || Files.notExists(WorldLecternState.getFile(world))) return;
+        }
+
+        try {
+            Files.move(pendingMigration, pendingMigration.resolveSibling(pendingMigration.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            journal.truncate();
+            LOGGER.info("[TL] Lecterns saved with the worlds, kept {} as {}.migrated", pendingMigration.getFileName(), pendingMigration.getFileName());
+            pendingMigration = null;
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error renaming {} after migrating to the world save: {}", pendingMigration, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of resident region shards, or -1 without region storage
+     */
+    public static int getLoadedRegions() {
+        return regions == null ? -1 : regions.size();
+    }
+
+    /**
+     * Records that a lectern's cooldown timestamp changed. With the cooldown journal enabled only a
+     * fixed size record is queued, otherwise the lecterns are marked dirty like any other change.
+     */
+    public static void markCooldownChanged(LecternObject lectern) {
+        TravelersLecternApi.markChanged();
+        if(!cooldownJournal || regions != null || worldStorage) { // a region file is small enough to just rewrite, worlds save themselves
+            markDirty(lectern);
+            return;
+        }
+
+        if(journalBuffer.remaining() < CooldownJournal.RECORD_SIZE) {
+            journalBuffer = ByteBuffer.allocate(journalBuffer.capacity() * 2).put(journalBuffer.flip());
+        }
+        journal.encode(journalBuffer, lectern);
+    }
+
+    /**
+     * Starts replicating lecterns through the shared directory, if one is configured.
+     */
+    public static void startReplication(MinecraftServer server) {
+        if(replicationDir.isEmpty()) return;
+
+        replicator = new LecternReplicator(Path.of(replicationDir), REPLICATION_ID_FILE, REPLICATION_OFFSET_FILE, ioExecutor);
+        replicator.start(server);
+    }
+
+    /**
+     * Sends a lectern created or edited with a command to the other servers, when replication is enabled.
+     */
+    public static void replicate(LecternObject lectern) {
+        if(replicator != null) replicator.publish(lectern);
+    }
+
+    /**
+     * Sends a destroyed lectern to the other servers, when replication is enabled.
+     */
+    public static void replicateRemoval(RegistryKey<World> worldKey, long pos) {
+        if(replicator != null) replicator.publishRemoval(worldKey, pos);
+    }
+
+    /**
+     * Starts a batch of lectern changes, e.g. from a region command. Replicated changes are held back until
+     * {@link #commitBatch}.
+     */
+    public static void beginBatch() {
+        if(replicator != null) replicator.beginBatch();
+    }
+
+    /**
+     * Writes a batch of lectern changes right away, with a single save and a single append to the replication log.
+     */
+    public static void commitBatch() {
+        if(replicator != null) replicator.commitBatch();
+        if(regions != null) regions.saveDirty();
+        else if(!worldStorage && dirty) saveLecterns();
+    }
+
+    /**
+     * Called every server tick. Once the save interval has passed it saves the lecterns if something changed,
+     * or only appends the queued journal records when nothing but cooldowns changed. The journal is compacted
+     * into a full save after {@value #JOURNAL_COMPACT_RECORDS} records.
+     */
+    public static void tick() {
+        if(replicator != null) replicator.tick();
+        if(worldStorage) {
+            if(++ticksSinceSave >= saveIntervalSeconds * 20) { // the worlds save the lecterns, only the book blob file is left
+                ticksSinceSave = 0;
+                TravelersLectern.books.compactBlob();
+            }
+            return;
+        }
+
+        if(regions != null) {
+            regions.attachLoaded();
+            if(++ticksSinceSave >= saveIntervalSeconds * 20) {
+                ticksSinceSave = 0;
+                regions.saveDirty();
+                regions.evictIdle(regionEvictSeconds * 1000L);
+                if(replicator != null) replicator.saveOffset();
+                TravelersLectern.books.compactBlob();
+            }
+            return;
+        }
+
+        if(++ticksSinceSave < saveIntervalSeconds * 20) return;
+
+        TravelersLectern.books.compactBlob();
+        if(dirty || journalRecords >= JOURNAL_COMPACT_RECORDS) {
+            saveLecterns();
+            if(replicator != null) replicator.saveOffset();
+        } else if(journalBuffer.position() > 0) {
+            appendJournal();
+        }
+    }
+
+    private static void appendJournal() {
+        byte[] records = Arrays.copyOf(journalBuffer.array(), journalBuffer.position());
+        journalBuffer.clear();
+        journalRecords += records.length / CooldownJournal.RECORD_SIZE;
+        ticksSinceSave = 0;
+
+        ioExecutor.submit(() -> {
+            try {
+                long start = System.nanoTime();
+                journal.append(records, records.length);
+                LecternMetrics.recordSave(System.nanoTime() - start, records.length);
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error appending to the cooldown journal: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Snapshots the lecterns on the calling (server) thread and queues the snapshot for the writer thread.
+     * If an older snapshot is still waiting it is replaced, so any number of changes results in a single write.
+     * The snapshot includes every queued journal record, so the journal is emptied once it is written.
+     */
     public static void saveLecterns() {
-        File file = new File("config/travelers-lectern/travelers_lecterns.json");
+        dirty = false;
+        ticksSinceSave = 0;
+        journalBuffer.clear();
+        journalRecords = 0;
+
+        List<LecternObject> snapshot = new ArrayList<>(TravelersLectern.lecterns.size());
+        TravelersLectern.lecterns.forEach(lectern -> snapshot.add(lectern.copy()));
+
+        if(pendingSnapshot.getAndSet(snapshot) != null) return; // the queued write picks it up
+        ioExecutor.submit(() -> {
+            List<LecternObject> pending = pendingSnapshot.getAndSet(null);
+            if(pending != null) writeLecterns(pending);
+        });
+    }
+
+    /**
+     * Writes any pending change and waits for the writer, used when the server stops.
+     */
+    public static void flush() {
         try {
-            file.createNewFile();
-            BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-            Gson gson = gsonBuilder.create();
-            String json = gson.toJson(TravelersLectern.lecterns);
-            TravelersLectern.logDebug("[TL] Saving lecterns JSON: {}", json);
-            writer.write(json);
-            writer.close();
+            if(regions != null) regions.saveDirty();
+            else if(!worldStorage && (dirty || journalBuffer.position() > 0)) saveLecterns();
+            if(replicator != null) replicator.saveOffset(); // with world storage the worlds are saved right after this
+            ioExecutor.submit(() -> {}).get(); // single threaded, so every queued write is done once this one runs
         } catch(Exception e) {
-            TravelersLectern.logDebug("[TL] Error saving lecterns: {}", e.getMessage());
+            TravelersLectern.logError("[TL] Error flushing lecterns: {}", e.getMessage());
+        }
+    }
+
+    private static void writeLecterns(List<LecternObject> snapshot) {
+        try {
+            long start = System.nanoTime();
+            long bytes = storage.save(snapshot);
+            // Every record appended so far is part of this snapshot, later appends are queued behind this write
+            journal.truncate();
+            LecternMetrics.recordSave(System.nanoTime() - start, bytes);
+            if(LecternLog.Category.PERSISTENCE.isEnabled()) {
+                LecternLog.debug(LecternLog.Category.PERSISTENCE, "Saved {} lecterns as {} ({} bytes) in {} ms", snapshot.size(), storage.getName(), bytes,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error saving lecterns: {}", e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Appends a line to {@code metrics.csv} on the writer thread. The file is rolled over to
+     * {@code metrics.csv.1} once it grows past 1 MB, so at most two files are kept.
+     */
+    public static void appendMetrics(String line) {
+        ioExecutor.submit(() -> {
+            try {
+                if(Files.exists(METRICS_FILE) && Files.size(METRICS_FILE) > 1024 * 1024) {
+                    Files.move(METRICS_FILE, METRICS_FILE.resolveSibling("metrics.csv.1"), StandardCopyOption.REPLACE_EXISTING);
+                }
+                if(Files.notExists(METRICS_FILE)) {
+                    Files.writeString(METRICS_FILE, LecternMetrics.CSV_HEADER + "\n");
+                }
+                Files.writeString(METRICS_FILE, line + "\n", StandardOpenOption.APPEND);
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error writing metrics: {}", e.getMessage());
+            }
+        });
+    }
+
+    private static LecternStorage createStorage() {
+        if(storageFormat.equals("nbt") || storageFormat.equals("region")) return new NbtLecternStorage(NBT_FILE);
+        if(storageFormat.equals("world")) return Files.exists(NBT_FILE) ? new NbtLecternStorage(NBT_FILE) : new JsonLecternStorage(JSON_FILE); // only to migrate from
+        if(!storageFormat.equals("json")) LOGGER.warn("[TL] Unknown storage_format {}, using json", storageFormat);
+        return new JsonLecternStorage(JSON_FILE);
+    }
+
+    /**
+     * Loads the lecterns from the configured storage. The first time a non-json format is used the
+     * existing json file is migrated to it and kept as {@code travelers_lecterns.json.migrated}.
+     * <p>
+     * With region storage nothing is loaded here, regions load with their chunks. The first time it is
+     * used the single file is split into regions and kept as {@code travelers_lecterns.dat.migrated}.
+     * <p>
+     * With world storage the lecterns load with their worlds. The first time it is used the single file is
+     * loaded here and handed to the worlds as they load. It is kept with a {@code .migrated} suffix once the
+     * worlds have saved, see {@link #onWorldsSaved}.
+     */
     public static void loadLecterns() {
+        long start = System.nanoTime();
+        storage = createStorage();
+        TravelersLectern.lecterns.clear();
+        TravelersLectern.books.setMemoryCap(bookMemoryKb * 1024L, new BookBlobFile(BOOK_BLOB_FILE), ioExecutor);
+        TravelersLecternApi.markChanged();
+        regions = null;
+        worldStorage = false;
+        worldStates.clear();
+        pendingMigration = null;
+
+        if(storageFormat.equals("world")) {
+            worldStorage = true;
+            if(storage.exists()) {
+                loadMonolithic(start);
+                pendingMigration = storage instanceof NbtLecternStorage ? NBT_FILE : JSON_FILE;
+                LOGGER.info("[TL] Moving {} lecterns into the world save", TravelersLectern.lecterns.size());
+            }
+            return;
+        }
+
+        if(storageFormat.equals("region")) {
+            RegionLecternStorage regionStorage = new RegionLecternStorage(REGIONS_DIR, ioExecutor);
+            if(!regionStorage.exists() && (storage.exists() || Files.exists(JSON_FILE))) {
+                loadMonolithic(start);
+                try {
+                    regionStorage.migrate(TravelersLectern.lecterns.toList());
+                    if(storage.exists()) Files.move(NBT_FILE, NBT_FILE.resolveSibling("travelers_lecterns.dat.migrated"), StandardCopyOption.REPLACE_EXISTING);
+                    journal.truncate();
+                    LOGGER.info("[TL] Split {} lecterns into regions", TravelersLectern.lecterns.size());
+                } catch(Exception e) {
+                    TravelersLectern.logError("[TL] Error migrating lecterns to regions: {}", e.getMessage());
+                }
+                TravelersLectern.lecterns.clear();
+                TravelersLectern.books.clear();
+                dirty = false;
+            }
+            regions = regionStorage;
+            return;
+        }
+
+        loadMonolithic(start);
+    }
+
+    private static void loadMonolithic(long start) {
         try {
-            File file = new File("config/travelers-lectern/travelers_lecterns.json");
-            if(!file.createNewFile()) {
-                Scanner reader = new Scanner(file);
-                String str = "";
-                while (reader.hasNextLine()) {
-                    str += reader.nextLine();
-                };
-                TravelersLectern.logDebug("[TL] Loaded lecterns JSON: {}", str);
-                TravelersLectern.lecterns = gsonBuilder.create().fromJson(str, new TypeToken<Map<Long, LecternObject>>(){}.getType());
-                if(TravelersLectern.lecterns == null) TravelersLectern.lecterns = new HashMap<>();
-                reader.close();
+            if(!storage.exists() && !(storage instanceof JsonLecternStorage) && Files.exists(JSON_FILE)) {
+                List<LecternObject> migrated = new JsonLecternStorage(JSON_FILE).load();
+                storage.save(migrated);
+                Files.move(JSON_FILE, JSON_FILE.resolveSibling("travelers_lecterns.json.migrated"));
+                LOGGER.info("[TL] Migrated {} lecterns from json to {}", migrated.size(), storage.getName());
             }
 
+            storage.load().forEach(TravelersLectern.lecterns::put);
         } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error loading lecterns: {}", e.getMessage());
             e.printStackTrace();
+            TravelersLectern.lecterns.clear();
         }
+
+        if(journal.exists()) {
+            try {
+                LOGGER.info("[TL] Replayed {} cooldown journal records", journal.replay(TravelersLectern.lecterns));
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error replaying the cooldown journal, using the saved cooldowns: {}", e.getMessage());
+            }
+            markDirty(); // compacted into the next save
+        }
+
+        // Only lecterns that made it into the registry hold on to their book
+        TravelersLectern.lecterns.forEach(lectern -> TravelersLectern.books.retain(lectern.getStoredBook()));
+        TravelersLectern.books.purgeUnreferenced();
+
+        LOGGER.info("[TL] Loaded {} lecterns ({} distinct books) from {} in {} ms", TravelersLectern.lecterns.size(),
+                TravelersLectern.books.size(), storage.getName(), (System.nanoTime() - start) / 1_000_000);
     }
 
 }
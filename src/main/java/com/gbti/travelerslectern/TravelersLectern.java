@@ -1,14 +1,26 @@
 package com.gbti.travelerslectern;
 
+import com.gbti.travelerslectern.api.TravelersLecternApi;
+import com.gbti.travelerslectern.utils.BookFingerprintHolder;
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternAuditor;
+import com.gbti.travelerslectern.utils.LecternBatch;
+import com.gbti.travelerslectern.utils.LecternLog;
+import com.gbti.travelerslectern.utils.LecternMetrics;
 import com.gbti.travelerslectern.utils.LecternObject;
-import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.gbti.travelerslectern.utils.LecternRegistry;
+import com.gbti.travelerslectern.utils.RespawnScheduler;
+import com.gbti.travelerslectern.utils.Throttle;
 import net.fabricmc.api.ModInitializer;
 
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.fabricmc.fabric.api.event.player.UseItemCallback;
 import net.minecraft.block.*;
 import net.minecraft.block.entity.ChestBlockEntity;
@@ -16,15 +28,15 @@ import net.minecraft.block.entity.LecternBlockEntity;
 import net.minecraft.command.argument.EntityArgumentType;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
-import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
-import net.minecraft.nbt.StringNbtReader;
 import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.TypedActionResult;
+import net.minecraft.util.Util;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
@@ -32,14 +44,18 @@ import net.minecraft.world.RaycastContext;
 import net.minecraft.world.World;
 
 import java.util.*;
-import java.util.Optional;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class TravelersLectern implements ModInitializer {
     public static final String MOD_ID = "travelers_lectern";
-    public static Map<Long, LecternObject> lecterns = new HashMap<>();
-    public static Map<UUID, Integer> playersBreaks;
+    public static final LecternRegistry lecterns = new LecternRegistry();
+    public static final RespawnScheduler respawnScheduler = new RespawnScheduler();
+    public static final LecternAuditor auditor = new LecternAuditor();
+    public static final List<LecternBatch> batches = new ArrayList<>();
+    public static final BookStore books = new BookStore();
+    public static final Throttle breakMessages = new Throttle(1, 3000);
+    public static Throttle interactionThrottle;
     private static final Logger LOGGER = LogManager.getLogger("TravelersLectern");
     public static boolean debugLoggingEnabled = false;
 
@@ -53,6 +69,63 @@ public class TravelersLectern implements ModInitializer {
         LOGGER.error(message, params);
     }
 
+    /**
+     * Registers a traveler's lectern: counts its book, schedules its respawn and marks the data for saving.
+     */
+    public static void addLectern(LecternObject lectern) {
+        LecternObject previous = lecterns.put(lectern);
+        if(previous != null) forgetLectern(previous);
+
+        books.retain(lectern.getStoredBook());
+        respawnScheduler.schedule(lectern);
+        FileManager.markDirty(lectern);
+    }
+
+    /**
+     * Unregisters a traveler's lectern, the lectern block itself is left alone.
+     *
+     * @return the removed lectern, or null if there was none
+     */
+    public static LecternObject removeLectern(RegistryKey<World> worldKey, long pos) {
+        LecternObject lectern = lecterns.remove(worldKey, pos);
+        if(lectern != null) {
+            forgetLectern(lectern);
+            FileManager.markDirty(lectern);
+        }
+        return lectern;
+    }
+
+    /**
+     * Puts a lectern read from storage back in memory, without marking anything for saving.
+     */
+    public static void attachLectern(LecternObject lectern) {
+        LecternObject previous = lecterns.put(lectern);
+        if(previous != null) forgetLectern(previous);
+
+        books.retain(lectern.getStoredBook());
+        respawnScheduler.schedule(lectern);
+        TravelersLecternApi.markChanged();
+    }
+
+    /**
+     * Drops a saved lectern from memory, e.g. when its region is evicted. It stays in storage.
+     */
+    public static void detachLectern(LecternObject lectern) {
+        if(lecterns.get(lectern.getWorldKey(), lectern.getPos()) != lectern) return;
+
+        lecterns.remove(lectern.getWorldKey(), lectern.getPos());
+        respawnScheduler.undefer(lectern);
+        books.release(lectern.getStoredBook());
+        LecternLog.stopTracing(lectern);
+        TravelersLecternApi.markChanged();
+    }
+
+    private static void forgetLectern(LecternObject lectern) {
+        LecternLog.stopTracing(lectern);
+        respawnScheduler.unschedule(lectern);
+        books.release(lectern.getStoredBook());
+    }
+
     @Override
     public void onInitialize() {
         // First read the config files to set up debug logging
@@ -64,78 +137,67 @@ public class TravelersLectern implements ModInitializer {
             logDebug("[TL] Initializing Travelers Lectern Mod with debug logging enabled");
         }
         
-        playersBreaks = new HashMap<>();
+        interactionThrottle = new Throttle(FileManager.interactionsPerSecond, 1000);
+        respawnScheduler.setJitterTicks(FileManager.respawnJitterSeconds * 20);
+
+        // Throttle state is only kept for connected players
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            breakMessages.remove(handler.getPlayer().getUuid());
+            interactionThrottle.remove(handler.getPlayer().getUuid());
+        });
 
-        // Handles TL items respawning
+        // Handles TL items respawning, only lecterns whose cooldown ran out are looked at,
+        // within a per tick budget so many lecterns coming due together are spread over several ticks
         ServerTickEvents.END_SERVER_TICK.register(server -> {
-            if(server.getOverworld().getTime() % 20 == 0) {  // Every second
-                lecterns.forEach((pos, lecternObject) -> {
-                    World world = server.getWorld(lecternObject.getWorldKey());
-                    BlockPos blockPos = BlockPos.fromLong(pos);
-                    
-                    if(world != null) {
-                        long timeSinceLastUse = world.getTime() - lecternObject.getLastTimeUsed();
-                        long cooldownTicks = lecternObject.getCooldown() * 20L;
-                        
-                        logDebug("Checking lectern at {}: Time since last use: {}s, Cooldown: {}s", 
-                            blockPos, timeSinceLastUse/20, cooldownTicks/20);
-                        
-                        if(timeSinceLastUse >= cooldownTicks) {
-                            BlockState state = world.getBlockState(blockPos);
-
-                            if (world.getBlockEntity(blockPos) instanceof LecternBlockEntity be && 
-                                state.getBlock().equals(Blocks.LECTERN)) {
-                                
-                                // Only respawn if there's no book
-                                if (!state.get(LecternBlock.HAS_BOOK)) {
-                                    try {
-                                        logDebug("Respawning book in lectern at {} after cooldown", blockPos);
-                                        NbtCompound storedNBT = StringNbtReader.parse(lecternObject.getItem().asString());
-                                        Optional<ItemStack> storedBookOpt = ItemStack.fromNbt(world.getRegistryManager(), storedNBT);
-                                        
-                                        if (storedBookOpt.isPresent()) {
-                                            ItemStack storedBook = storedBookOpt.get();
-                                            world.addBlockBreakParticles(blockPos, state);
-                                            be.setBook(storedBook.copy());
-                                            LecternBlock.setHasBook(null, world, blockPos, state, true);
-                                            logDebug("Successfully respawned book in lectern at {}", blockPos);
-                                            
-                                            // Reset the lastTimeUsed to current time to prevent immediate re-spawning
-                                            lecternObject.setLastTimeUsed(world.getTime());
-                                            FileManager.saveLecterns();
-                                        } else {
-                                            logError("Failed to create ItemStack from NBT when respawning book at {}", blockPos);
-                                        }
-                                    } catch (CommandSyntaxException e) {
-                                        logError("Error respawning book in lectern at {}: {}", blockPos, e.getMessage());
-                                    }
-                                } else {
-                                    logDebug("Lectern at {} already has a book, skipping respawn", blockPos);
-                                }
-                            }
-                        } else {
-                            logDebug("Lectern at {} still on cooldown. {}s remaining", 
-                                blockPos, (cooldownTicks - timeSinceLastUse)/20);
-                        }
-                    }
-                });
+            long start = System.nanoTime();
+            if(respawnScheduler.pollDue(server.getOverworld().getTime(), lecternObject -> respawnBook(server, lecternObject),
+                    FileManager.respawnsPerTick, FileManager.respawnBudgetMicros * 1000L)) {
+                LecternMetrics.respawnTicksOverBudget++;
+            }
+            LecternMetrics.respawnTick.record(System.nanoTime() - start);
+
+            // Runs the region commands, their scans are spread over several ticks
+            if(!batches.isEmpty()) batches.removeIf(LecternBatch::tick);
+
+            // Prunes lecterns whose block is gone, a few per tick
+            auditor.tick(server, server.getOverworld().getTime(), FileManager.auditLecternsPerTick);
 
+            if(FileManager.metricsCsv && server.getTicks() % 1200 == 0) { // Every minute
+                FileManager.appendMetrics(LecternMetrics.toCsvLine(System.currentTimeMillis(), lecterns.size(), books.size()));
             }
+        });
+
+        // Loads the region of a chunk when region storage is used, then catches up on respawns that came due
+        // while the chunk was unloaded, they are handed out on the next tick
+        ServerChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
+            FileManager.onChunkLoad(world.getRegistryKey(), chunk.getPos().toLong());
+            respawnScheduler.onChunkLoad(world.getRegistryKey(), chunk.getPos().toLong());
+        });
+        ServerChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> FileManager.onChunkUnload(world.getRegistryKey(), chunk.getPos().toLong()));
 
+        // Attaches the lecterns saved with a world when world storage is used
+        ServerWorldEvents.LOAD.register((server, world) -> FileManager.onWorldLoad(world));
+        ServerWorldEvents.UNLOAD.register((server, world) -> FileManager.onWorldUnload(world));
+
+        // Hands changed lecterns to the background writer once per save interval, and to other mods once a second.
+        // Book payloads over the memory cap are evicted here once the IO thread has written them out
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            FileManager.tick();
+            books.trim();
+            TravelersLecternApi.publishIfChanged(server.getOverworld().getTime());
         });
 
         // Makes the TL and TC unbreakable by non-admin players
         PlayerBlockBreakEvents.BEFORE.register((world, player, pos, state, blockEntity) -> {
-                if(state.getBlock().equals(Blocks.LECTERN) && blockEntity instanceof LecternBlockEntity && lecterns.containsKey(pos.asLong())) {
+                if(state.getBlock().equals(Blocks.LECTERN) && blockEntity instanceof LecternBlockEntity && lecterns.contains(world, pos)) {
                     if(!player.hasPermissionLevel(4)) {
-                        if(playersBreaks.getOrDefault(player.getUuid(), 1) >= 3) {
-                            playersBreaks.put(player.getUuid(), 0);
+                        if(breakMessages.tryAcquire(player.getUuid(), Util.getMeasuringTimeMs())) {
                             player.sendMessage(Text.literal("This lectern is protected by a mysterious force."));
-                        } else playersBreaks.put(player.getUuid(), playersBreaks.getOrDefault(player.getUuid(), 0) + 1);
+                        }
                         return false;
                     } else {
-                        lecterns.remove(pos.asLong());
-                        FileManager.saveLecterns();
+                        removeLectern(world.getRegistryKey(), pos.asLong());
+                        FileManager.replicateRemoval(world.getRegistryKey(), pos.asLong());
                     }
                 }
 
@@ -144,21 +206,77 @@ public class TravelersLectern implements ModInitializer {
         );
 
     
-        // Load all configs and stored data
-        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+        // Load all configs and stored data, before the spawn chunks load so region storage sees them
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> {
             FileManager.loadLecterns();
-            TravelersLectern.lecterns.forEach((pos, lecternObject) -> {
-                RegistryKey<World> worldKey = server.getWorldRegistryKeys().stream().filter(key -> key.toString().equals(lecternObject.getWorldKey().toString())).findFirst().orElse(null);
-                if(worldKey != null) lecternObject.setWorldKey(worldKey);
-            });
+            respawnScheduler.rebuild(lecterns);
+            FileManager.startReplication(server);
         });
 
+        // Make sure nothing is lost when the server shuts down
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> FileManager.flush());
+
+        // Finishes moving lecterns into the world save once the worlds have written them
+        ServerLifecycleEvents.AFTER_SAVE.register((server, flush, force) -> FileManager.onWorldsSaved(server));
+
         // TL and TC commands
         LecternObject.lecternCommand();
         
         logDebug("[TL] Initialization complete. Debug logging is {}", debugLoggingEnabled ? "enabled" : "disabled");
     }
 
+    /**
+     * Called by the respawn scheduler once the cooldown of a lectern has run out.
+     * If the book is still there the lectern stays unscheduled until an interaction restarts its cooldown
+     * or the book is taken from the lectern screen, see {@code LecternBlockEntityMixin}.
+     */
+    private static void respawnBook(MinecraftServer server, LecternObject lecternObject) {
+        World world = server.getWorld(lecternObject.getWorldKey());
+        if(world == null) return;
+
+        BlockPos blockPos = lecternObject.getBlockPos();
+        if(!lecternObject.isChunkLoaded(world)) {
+            // Never load a chunk for a respawn, it is caught up once something else loads the chunk
+            LecternLog.debug(LecternLog.Category.TICK, "Lectern at {} is in an unloaded chunk, deferring respawn", blockPos);
+            LecternLog.trace(lecternObject, "due in an unloaded chunk, deferred");
+            respawnScheduler.defer(lecternObject);
+            return;
+        }
+
+        BlockState state = world.getBlockState(blockPos);
+
+        if (world.getBlockEntity(blockPos) instanceof LecternBlockEntity be &&
+            state.getBlock().equals(Blocks.LECTERN)) {
+
+            // Only respawn if there's no book
+            if (!state.get(LecternBlock.HAS_BOOK)) {
+                LecternLog.debug(LecternLog.Category.TICK, "Respawning book in lectern at {} after cooldown", blockPos);
+                ItemStack storedBook = lecternObject.getBook(world.getRegistryManager());
+
+                if (!storedBook.isEmpty()) {
+                    world.addBlockBreakParticles(blockPos, state);
+                    be.setBook(storedBook);
+                    ((BookFingerprintHolder) be).travelersLectern$setBookFingerprint(lecternObject.getBookFingerprint());
+                    LecternBlock.setHasBook(null, world, blockPos, state, true);
+                    LecternLog.debug(LecternLog.Category.TICK, "Successfully respawned book in lectern at {}", blockPos);
+                    LecternLog.trace(lecternObject, "book respawned {} ticks after it was due", world.getTime() - lecternObject.getRespawnTick());
+
+                    LecternMetrics.lecternsRespawned++;
+
+                    // Reset the lastTimeUsed to current time to prevent immediate re-spawning
+                    lecternObject.setLastTimeUsed(world.getTime());
+                    respawnScheduler.schedule(lecternObject);
+                    FileManager.markCooldownChanged(lecternObject);
+                } else {
+                    logError("Failed to create ItemStack from NBT when respawning book at {}", blockPos);
+                }
+            } else {
+                LecternLog.debug(LecternLog.Category.TICK, "Lectern at {} already has a book, skipping respawn", blockPos);
+                LecternLog.trace(lecternObject, "due but the book is still there");
+            }
+        }
+    }
+
     public static BlockHitResult getBlockPlayerIsLooking(ServerPlayerEntity player) {
         double maxDistance = 20.0D; // range of the player
 
@@ -0,0 +1,20 @@
+package com.gbti.travelerslectern.api;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * An immutable view of one traveler's lectern, as it was when its {@link LecternSnapshot} was taken.
+ *
+ * @param world the dimension the lectern is in
+ * @param pos the position of the lectern
+ * @param cooldownSeconds the cooldown between two respawns of the book
+ * @param lastTimeUsed the world time the current cooldown started at
+ * @param respawnTick the world time from which the book may be respawned, jitter included
+ * @param perPlayer whether every player has their own cooldown, in which case the book never leaves the lectern
+ * @param bookHash the content hash of the book, equal for lecterns holding the same book
+ */
+public record LecternInfo(RegistryKey<World> world, BlockPos pos, int cooldownSeconds, long lastTimeUsed, long respawnTick,
+                          boolean perPlayer, String bookHash) {
+}
@@ -0,0 +1,126 @@
+package com.gbti.travelerslectern.api;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every traveler's lectern at one point in time. A snapshot never changes once published, so it can be
+ * read from any thread and kept around as long as needed; newer states are published as new snapshots.
+ * <p>
+ * Lecterns are indexed by dimension sorted on x for bounding box queries, and all together sorted
+ * on their respawn tick for {@link #getDueWithin} queries.
+ */
+public final class LecternSnapshot {
+
+    static final LecternSnapshot EMPTY = new LecternSnapshot(0, 0, List.of());
+
+    private static final Comparator<LecternInfo> BY_X = Comparator.comparingInt(info -> info.pos().getX());
+    private static final Comparator<LecternInfo> BY_RESPAWN = Comparator.comparingLong(LecternInfo::respawnTick);
+
+    private final long version;
+    private final long time;
+    private final List<LecternInfo> byRespawn;
+    private final Map<RegistryKey<World>, List<LecternInfo>> byWorld;
+
+    LecternSnapshot(long version, long time, List<LecternInfo> lecterns) {
+        this.version = version;
+        this.time = time;
+
+        List<LecternInfo> sorted = new ArrayList<>(lecterns);
+        sorted.sort(BY_RESPAWN);
+        this.byRespawn = List.copyOf(sorted);
+
+        Map<RegistryKey<World>, List<LecternInfo>> worlds = new IdentityHashMap<>();
+        for(LecternInfo info : lecterns) worlds.computeIfAbsent(info.world(), key -> new ArrayList<>()).add(info);
+        worlds.replaceAll((key, list) -> {
+            list.sort(BY_X);
+            return List.copyOf(list);
+        });
+        this.byWorld = Map.copyOf(worlds);
+    }
+
+    /**
+     * @return a number that grows with every published snapshot, so callers can tell whether anything changed
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the overworld time at which the snapshot was taken, the reference for the respawn ticks
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public int size() {
+        return byRespawn.size();
+    }
+
+    /**
+     * @return every lectern, ordered by respawn tick
+     */
+    public List<LecternInfo> getAll() {
+        return byRespawn;
+    }
+
+    public Collection<RegistryKey<World>> getWorlds() {
+        return byWorld.keySet();
+    }
+
+    /**
+     * @return the lecterns of one dimension, ordered by x
+     */
+    public List<LecternInfo> getWorld(RegistryKey<World> world) {
+        return byWorld.getOrDefault(world, List.of());
+    }
+
+    /**
+     * @return the lecterns of a dimension inside the box, bounds included
+     */
+    public List<LecternInfo> getInBox(RegistryKey<World> world, BlockBox box) {
+        List<LecternInfo> lecterns = getWorld(world);
+        List<LecternInfo> found = new ArrayList<>();
+        for(int i = firstX(lecterns, box.getMinX()); i < lecterns.size(); i++) {
+            LecternInfo info = lecterns.get(i);
+            if(info.pos().getX() > box.getMaxX()) break;
+            if(box.contains(info.pos())) found.add(info);
+        }
+        return found;
+    }
+
+    /**
+     * @return the lecterns whose book may be respawned within the given number of seconds after the snapshot
+     *         was taken, including the ones already due, ordered by respawn tick
+     */
+    public List<LecternInfo> getDueWithin(long seconds) {
+        long limit = time + seconds * 20;
+        int low = 0;
+        int high = byRespawn.size();
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(byRespawn.get(middle).respawnTick() <= limit) low = middle + 1;
+            else high = middle;
+        }
+        return byRespawn.subList(0, low);
+    }
+
+    private static int firstX(List<LecternInfo> lecterns, int x) {
+        int low = 0;
+        int high = lecterns.size();
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(lecterns.get(middle).pos().getX() < x) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,62 @@
+package com.gbti.travelerslectern.api;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.LecternObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read only access to the traveler's lecterns for other mods and tools.
+ * <p>
+ * The server thread publishes an immutable {@link LecternSnapshot} through a volatile field, at most once a second
+ * and only when a lectern changed since the last one, as building it copies and sorts every lectern. Reading it
+ * never locks or waits on the tick and is safe from any thread:
+ * <pre>
+ * LecternSnapshot snapshot = TravelersLecternApi.getSnapshot();
+ * List&lt;LecternInfo&gt; soon = snapshot.getDueWithin(60);
+ * </pre>
+ */
+public final class TravelersLecternApi {
+
+    private static final int PUBLISH_TICKS = 20;
+
+    private static volatile LecternSnapshot snapshot = LecternSnapshot.EMPTY;
+    private static boolean changed = true;
+    private static int ticksSincePublish = PUBLISH_TICKS;
+    private static long version;
+
+    private TravelersLecternApi() {}
+
+    /**
+     * @return the latest published snapshot, at most a second old
+     */
+    public static LecternSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Called by the mod on the server thread whenever a lectern is added, removed or changed.
+     */
+    public static void markChanged() {
+        changed = true;
+    }
+
+    /**
+     * Called by the mod at the end of every server tick, publishes a new snapshot if anything changed and the
+     * last one is at least a second old.
+     */
+    public static void publishIfChanged(long time) {
+        if(ticksSincePublish < PUBLISH_TICKS) ticksSincePublish++;
+        if(!changed || ticksSincePublish < PUBLISH_TICKS) return;
+        changed = false;
+        ticksSincePublish = 0;
+
+        List<LecternInfo> lecterns = new ArrayList<>(TravelersLectern.lecterns.size());
+        for(LecternObject lectern : TravelersLectern.lecterns) {
+            lecterns.add(new LecternInfo(lectern.getWorldKey(), lectern.getBlockPos(), lectern.getCooldown(), lectern.getLastTimeUsed(),
+                    TravelersLectern.respawnScheduler.getDueTick(lectern), lectern.isPerPlayer(), lectern.getStoredBook().getHash()));
+        }
+        snapshot = new LecternSnapshot(++version, time, lecterns);
+    }
+}
@@ -0,0 +1,69 @@
+package com.gbti.travelerslectern.mixin;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.BookFingerprintHolder;
+import com.gbti.travelerslectern.utils.LecternLog;
+import com.gbti.travelerslectern.utils.LecternObject;
+import net.minecraft.block.entity.LecternBlockEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.world.World;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(LecternBlockEntity.class)
+public class LecternBlockEntityMixin implements BookFingerprintHolder {
+
+    @Unique
+    private long travelersLectern$bookFingerprint = UNKNOWN;
+
+    @Override
+    public long travelersLectern$getBookFingerprint() {
+        return travelersLectern$bookFingerprint;
+    }
+
+    @Override
+    public void travelersLectern$setBookFingerprint(long fingerprint) {
+        travelersLectern$bookFingerprint = fingerprint;
+    }
+
+    /**
+     * Forgets the fingerprint whenever the book changes, callers that know what they put in set it again afterwards.
+     */
+    @Inject(method = "setBook(Lnet/minecraft/item/ItemStack;)V", at = @At("HEAD"))
+    private void travelersLectern$onSetBook(ItemStack book, CallbackInfo ci) {
+        travelersLectern$bookFingerprint = UNKNOWN;
+    }
+
+    @Inject(method = "clear", at = @At("HEAD"))
+    private void travelersLectern$onClear(CallbackInfo ci) {
+        travelersLectern$bookFingerprint = UNKNOWN;
+    }
+
+    /**
+     * The Take Book button removes the book without going through the mod. A traveler's lectern that came due
+     * while its book was still there is no longer scheduled, so it is scheduled again here to get its book back.
+     */
+    @Inject(method = "onBookRemoved", at = @At("HEAD"))
+    private void travelersLectern$onBookRemoved(CallbackInfo ci) {
+        travelersLectern$bookFingerprint = UNKNOWN;
+
+        LecternBlockEntity be = (LecternBlockEntity) (Object) this;
+        World world = be.getWorld();
+        if(world == null || world.isClient || TravelersLectern.lecterns.isEmpty()) return;
+
+        LecternObject lectern = TravelersLectern.lecterns.get(world, be.getPos());
+        if(lectern == null || lectern.isPerPlayer()) return;
+        TravelersLectern.respawnScheduler.schedule(lectern);
+        LecternLog.trace(lectern, "book taken from the screen, respawn at tick {}", lectern.getScheduledTick());
+    }
+
+    @Inject(method = "readNbt", at = @At("HEAD"))
+    private void travelersLectern$onReadNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup, CallbackInfo ci) {
+        travelersLectern$bookFingerprint = UNKNOWN;
+    }
+}
@@ -2,26 +2,31 @@ package com.gbti.travelerslectern.mixin;
 
 import com.gbti.travelerslectern.FileManager;
 import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.BookFingerprintHolder;
+import com.gbti.travelerslectern.utils.LecternLog;
+import com.gbti.travelerslectern.utils.LecternMetrics;
 import com.gbti.travelerslectern.utils.LecternObject;
-import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import java.util.Optional;
+import com.gbti.travelerslectern.utils.PlayerCooldowns;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.LecternBlock;
 import net.minecraft.block.entity.LecternBlockEntity;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.ItemStack;
-import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.StringNbtReader;
 import net.minecraft.registry.tag.ItemTags;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Hand;
 import net.minecraft.util.ItemActionResult;
+import net.minecraft.util.Util;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import static net.minecraft.block.LecternBlock.HAS_BOOK;
 import static net.minecraft.block.LecternBlock.putBookIfAbsent;
@@ -48,71 +53,22 @@ public class LecternBlockMixin {
      */
     @Overwrite
     public ItemActionResult onUseWithItem(ItemStack stack, BlockState state, World world, BlockPos pos, PlayerEntity player, Hand hand, BlockHitResult hit) {
-        if(world.getBlockEntity(pos) instanceof LecternBlockEntity be && !TravelersLectern.lecterns.isEmpty() && TravelersLectern.lecterns.containsKey(pos.asLong())) {
-            if(state.get(HAS_BOOK)) {
-                boolean isAdmin = player instanceof ServerPlayerEntity && ((ServerPlayerEntity) player).hasPermissionLevel(4);
-                LecternObject lectern = TravelersLectern.lecterns.get(pos.asLong());
-                long timeSinceLastUse = world.getTime() - lectern.getLastTimeUsed();
-                long cooldownTicks = lectern.getCooldown() * 20L;
-                boolean cooldownElapsed = timeSinceLastUse >= cooldownTicks;
-
-                TravelersLectern.logDebug("Lectern interaction at {}: Book present, Admin: {}, Time since last use: {}s, Cooldown: {}s, Elapsed: {}", 
-                    pos, isAdmin, timeSinceLastUse/20, cooldownTicks/20, cooldownElapsed);
-
-                // Start cooldown as soon as player interacts with lectern
-                if (cooldownElapsed) {
-                    lectern.setLastTimeUsed(world.getTime());
-                    FileManager.saveLecterns();
-                    TravelersLectern.logDebug("Starting new cooldown for lectern at {}", pos);
-                }
-
-                // First, ensure the lectern has the correct book content
-                try {
-                    NbtCompound storedNBT = StringNbtReader.parse(lectern.getItem().asString());
-                    Optional<ItemStack> storedBookOpt = ItemStack.fromNbt(world.getRegistryManager(), storedNBT);
-                    
-                    if (storedBookOpt.isPresent()) {
-                        ItemStack storedBook = storedBookOpt.get();
-                        
-                        // Update the lectern's book if it doesn't match
-                        if (!ItemStack.areEqual(be.getBook(), storedBook)) {
-                            TravelersLectern.logDebug("Updating lectern book content at {}", pos);
-                            be.setBook(storedBook.copy());
-                        }
+        LecternObject lectern = TravelersLectern.lecterns.isEmpty() ? null : TravelersLectern.lecterns.get(world, pos);
+        if(lectern != null && world.getBlockEntity(pos) instanceof LecternBlockEntity be) {
+            if(!TravelersLectern.interactionThrottle.tryAcquire(player.getUuid(), Util.getMeasuringTimeMs())) {
+                LecternMetrics.interactionsThrottled++;
+                LecternLog.trace(lectern, "interaction throttled");
+                return ItemActionResult.SKIP_DEFAULT_BLOCK_INTERACTION; // spam clicking, don't do any work for it
+            }
 
-                        // If player is sneaking or clicks Take Book button, attempt to take the book
-                        if (player.isSneaking()) {
-                            if (isAdmin || cooldownElapsed) {
-                                TravelersLectern.logDebug("Player taking book from lectern at {}", pos);
-                                player.giveItemStack(storedBook.copy());
-                                be.setBook(ItemStack.EMPTY);
-                                LecternBlock.setHasBook(player, world, pos, state, false);
-                                return ItemActionResult.success(world.isClient);
-                            } else {
-                                if (player instanceof ServerPlayerEntity) {
-                                    ((ServerPlayerEntity) player).sendMessage(Text.literal("This book will be available again in " + 
-                                        ((cooldownTicks - timeSinceLastUse) / 20) + " seconds."), true);
-                                }
-                                return ItemActionResult.success(world.isClient);
-                            }
-                        }
-                        
-                        // If not sneaking, open the lectern GUI (vanilla behavior)
-                        if (!player.isSneaking()) {
-                            TravelersLectern.logDebug("Opening lectern GUI at {}", pos);
-                            player.openHandledScreen(be);
-                            return ItemActionResult.success(world.isClient);
-                        }
-                    } else {
-                        TravelersLectern.logError("Failed to create ItemStack from NBT at {}", pos);
-                    }
-                } catch (CommandSyntaxException e) {
-                    TravelersLectern.logError("Error parsing NBT data for lectern at {}: {}", pos, e.getMessage());
-                }
+            long start = System.nanoTime();
+            try {
+                return onUseTravelersLectern(lectern, be, state, world, pos, player);
+            } finally {
+                LecternMetrics.interaction.record(System.nanoTime() - start);
             }
-            return ItemActionResult.SKIP_DEFAULT_BLOCK_INTERACTION;
         } else if(state.get(HAS_BOOK)) {
-            TravelersLectern.logDebug("Non-travelers lectern interaction at {}", pos);
+            LecternLog.debug(LecternLog.Category.INTERACTION, "Non-travelers lectern interaction at {}", pos);
             return ItemActionResult.PASS_TO_DEFAULT_BLOCK_INTERACTION;
         } else if (stack.isIn(ItemTags.LECTERN_BOOKS)) {
             return putBookIfAbsent(player, world, pos, state, stack) ? ItemActionResult.success(world.isClient) : ItemActionResult.SKIP_DEFAULT_BLOCK_INTERACTION;
@@ -121,4 +77,138 @@ public class LecternBlockMixin {
         }
     }
 
+    /**
+     * Handles the use of a traveler's lectern, reading the book or taking it once the cooldown allows.
+     */
+    @Unique
+    private ItemActionResult onUseTravelersLectern(LecternObject lectern, LecternBlockEntity be, BlockState state, World world, BlockPos pos, PlayerEntity player) {
+        if(lectern.isPerPlayer()) return onUsePerPlayerLectern(lectern, be, state, world, pos, player);
+
+        if(state.get(HAS_BOOK)) {
+            boolean isAdmin = player instanceof ServerPlayerEntity && ((ServerPlayerEntity) player).hasPermissionLevel(4);
+            long timeSinceLastUse = world.getTime() - lectern.getLastTimeUsed();
+            long cooldownTicks = lectern.getCooldown() * 20L;
+            boolean cooldownElapsed = timeSinceLastUse >= cooldownTicks;
+
+            LecternLog.debug(LecternLog.Category.INTERACTION, "Lectern interaction at {}: Book present, Time since last use: {} ticks, Cooldown: {} ticks",
+                pos, timeSinceLastUse, cooldownTicks);
+            LecternLog.trace(lectern, "used, {} of {} cooldown ticks elapsed", timeSinceLastUse, cooldownTicks);
+
+            // Start cooldown as soon as player interacts with lectern
+            if (cooldownElapsed) {
+                lectern.setLastTimeUsed(world.getTime());
+                TravelersLectern.respawnScheduler.schedule(lectern);
+                FileManager.markCooldownChanged(lectern);
+                LecternLog.debug(LecternLog.Category.INTERACTION, "Starting new cooldown for lectern at {}", pos);
+            }
+
+            // First, ensure the lectern has the correct book content
+            ItemStack storedBook = lectern.getBookTemplate(world.getRegistryManager());
+
+            if (!storedBook.isEmpty()) {
+                // Update the lectern's book if it doesn't match
+                if (syncBook(lectern, be, storedBook)) {
+                    LecternLog.debug(LecternLog.Category.INTERACTION, "Updated lectern book content at {}", pos);
+                    LecternLog.trace(lectern, "book content restored");
+                }
+
+                // If player is sneaking or clicks Take Book button, attempt to take the book
+                if (player.isSneaking()) {
+                    if (isAdmin || cooldownElapsed) {
+                        LecternLog.debug(LecternLog.Category.INTERACTION, "Player taking book from lectern at {}", pos);
+                        LecternLog.trace(lectern, "book taken");
+                        player.giveItemStack(storedBook.copy());
+                        be.setBook(ItemStack.EMPTY);
+                        LecternBlock.setHasBook(player, world, pos, state, false);
+                        return ItemActionResult.success(world.isClient);
+                    } else {
+                        if (player instanceof ServerPlayerEntity) {
+                            ((ServerPlayerEntity) player).sendMessage(Text.literal("This book will be available again in " + 
+                                ((cooldownTicks - timeSinceLastUse) / 20) + " seconds."), true);
+                        }
+                        return ItemActionResult.success(world.isClient);
+                    }
+                }
+                
+                // If not sneaking, open the lectern GUI (vanilla behavior)
+                if (!player.isSneaking()) {
+                    LecternLog.debug(LecternLog.Category.INTERACTION, "Opening lectern GUI at {}", pos);
+                    player.openHandledScreen(be);
+                    return ItemActionResult.success(world.isClient);
+                }
+            } else {
+                TravelersLectern.logError("Failed to create ItemStack from NBT at {}", pos);
+            }
+        }
+        return ItemActionResult.SKIP_DEFAULT_BLOCK_INTERACTION;
+    }
+
+    /**
+     * Quarantines a traveler's lectern as soon as its block is replaced by something else, by an explosion,
+     * a tool or anything that doesn't go through the break event. The auditor removes it if it doesn't come back.
+     */
+    @Inject(method = "onStateReplaced", at = @At("HEAD"))
+    private void travelersLectern$onStateReplaced(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved, CallbackInfo ci) {
+        if(world.isClient || newState.getBlock() instanceof LecternBlock || TravelersLectern.lecterns.isEmpty()) return;
+
+        LecternObject lectern = TravelersLectern.lecterns.get(world, pos);
+        if(lectern != null) TravelersLectern.auditor.quarantine(lectern, world.getTime());
+    }
+
+    /**
+     * Puts the lectern's book in the block entity unless it already holds it. The fingerprint the block entity
+     * remembers makes this a long comparison, the books are only compared in full when it doesn't know it.
+     *
+     * @return true if the book had to be replaced
+     */
+    @Unique
+    private static boolean syncBook(LecternObject lectern, LecternBlockEntity be, ItemStack storedBook) {
+        BookFingerprintHolder holder = (BookFingerprintHolder) be;
+        long fingerprint = lectern.getBookFingerprint();
+        if(holder.travelersLectern$getBookFingerprint() == fingerprint && be.hasBook()) return false;
+
+        boolean replaced = !ItemStack.areEqual(be.getBook(), storedBook);
+        if(replaced) be.setBook(storedBook.copy());
+        holder.travelersLectern$setBookFingerprint(fingerprint);
+        return replaced;
+    }
+
+    /**
+     * Handles a lectern where every player has their own cooldown. The book never leaves the lectern,
+     * taking it gives the player a copy and starts their cooldown.
+     */
+    @Unique
+    private ItemActionResult onUsePerPlayerLectern(LecternObject lectern, LecternBlockEntity be, BlockState state, World world, BlockPos pos, PlayerEntity player) {
+        ItemStack storedBook = lectern.getBookTemplate(world.getRegistryManager());
+        if(storedBook.isEmpty()) {
+            TravelersLectern.logError("Failed to create ItemStack from NBT at {}", pos);
+            return ItemActionResult.SKIP_DEFAULT_BLOCK_INTERACTION;
+        }
+
+        if(syncBook(lectern, be, storedBook)) {
+            if(!state.get(HAS_BOOK)) LecternBlock.setHasBook(player, world, pos, state, true);
+        }
+
+        if(player.isSneaking()) {
+            PlayerCooldowns cooldowns = lectern.getPlayerCooldowns();
+            long playerKey = PlayerCooldowns.key(player.getUuid());
+            long remaining = cooldowns.getRemaining(playerKey, world.getTime());
+            boolean isAdmin = player instanceof ServerPlayerEntity && ((ServerPlayerEntity) player).hasPermissionLevel(4);
+
+            if(isAdmin || remaining == 0) {
+                LecternLog.debug(LecternLog.Category.INTERACTION, "Player taking a copy of the book from per player lectern at {}", pos);
+                LecternLog.trace(lectern, "copy taken, {} players on cooldown", cooldowns.size());
+                player.giveItemStack(storedBook.copy());
+                cooldowns.start(playerKey, world.getTime(), world.getTime() + lectern.getCooldown() * 20L);
+                FileManager.markDirty(lectern);
+            } else if(player instanceof ServerPlayerEntity) {
+                ((ServerPlayerEntity) player).sendMessage(Text.literal("You can take this book again in " + (remaining / 20) + " seconds."), true);
+            }
+            return ItemActionResult.success(world.isClient);
+        }
+
+        player.openHandledScreen(be);
+        return ItemActionResult.success(world.isClient);
+    }
+
 }
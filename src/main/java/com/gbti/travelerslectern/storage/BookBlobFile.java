@@ -0,0 +1,163 @@
+package com.gbti.travelerslectern.storage;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtSizeTracker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Random access file holding book payloads that were evicted from memory, uncompressed NBT one after the other,
+ * found by the content hash of their book.
+ * <p>
+ * Books never change, so each hash is written once and read back whenever it is needed again, also after the book
+ * left the store and came back. The file is only a cache of what the lectern storage already holds: it starts empty
+ * with every server start, and once it has grown to twice its size after the last compaction it is rewritten with
+ * only the books still in use, see {@link #compact}. Appends and compactions are meant for the IO thread, reads are
+ * safe from any thread.
+ */
+public class BookBlobFile {
+
+    private static final long COMPACT_MIN_BYTES = 1024 * 1024;
+
+    private record Entry(long offset, int length) {}
+
+    private final Path file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private FileChannel channel;
+    private long size;
+    private long compactedSize;
+
+    public BookBlobFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Empties the file, dropping every payload written so far.
+     */
+    public synchronized void reset() throws IOException {
+        if(channel != null) channel.close();
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        entries.clear();
+        size = 0;
+        compactedSize = 0;
+    }
+
+    public static byte[] encode(NbtElement nbt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NbtCompound root = new NbtCompound();
+        root.put("book", nbt);
+        NbtIo.write(root, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    public synchronized boolean contains(String hash) {
+        return entries.containsKey(hash);
+    }
+
+    /**
+     * Appends the payload of a book, unless the file already holds one for its hash.
+     */
+    public synchronized void append(String hash, byte[] payload) throws IOException {
+        if(entries.containsKey(hash)) return;
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        while(buffer.hasRemaining()) channel.write(buffer, size + buffer.position());
+        entries.put(hash, new Entry(size, payload.length));
+        size += payload.length;
+    }
+
+    public NbtElement read(String hash) throws IOException {
+        ByteBuffer buffer;
+        synchronized(this) {
+            Entry entry = entries.get(hash);
+            if(entry == null) throw new IOException("Book " + hash + " is not in " + file);
+            buffer = ByteBuffer.allocate(entry.length());
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, entry.offset() + buffer.position()) < 0) throw new IOException("Book payload past the end of " + file);
+            }
+        }
+        NbtElement nbt = NbtIo.readCompound(new DataInputStream(new ByteArrayInputStream(buffer.array())), NbtSizeTracker.ofUnlimitedBytes()).get("book");
+        if(nbt == null) throw new IOException("Missing book payload for " + hash + " in " + file);
+        return nbt;
+    }
+
+    /**
+     * @return whether the file has grown enough since the last compaction for another one to be worth it
+     */
+    public synchronized boolean needsCompaction() {
+        return size >= COMPACT_MIN_BYTES && size >= 2 * compactedSize;
+    }
+
+    /**
+     * Rewrites the file with only the payloads of the given hashes. The live payloads are copied to a new file
+     * while reads go on, reads only wait for the new file to be swapped in. Must run on the IO thread, so no
+     * append happens in the meantime.
+     */
+    public void compact(Set<String> live) throws IOException {
+        Map<String, Entry> kept = new HashMap<>();
+        FileChannel source;
+        synchronized(this) {
+            entries.forEach((hash, entry) -> {
+                if(live.contains(hash)) kept.put(hash, entry);
+            });
+            if(kept.size() == entries.size()) { // nothing to drop, wait until it has doubled again
+                compactedSize = size;
+                return;
+            }
+            source = channel;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Entry> moved = new HashMap<>();
+        long offset = 0;
+        try(FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for(Map.Entry<String, Entry> entry : kept.entrySet()) {
+                Entry from = entry.getValue();
+                long copied = 0;
+                while(copied < from.length()) copied += source.transferTo(from.offset() + copied, from.length() - copied, target);
+                moved.put(entry.getKey(), new Entry(offset, from.length()));
+                offset += from.length();
+            }
+        } catch(IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        synchronized(this) {
+            // Closed before the move so it also works where open files can't be replaced
+            channel.close();
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch(IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            } finally {
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            entries.clear();
+            entries.putAll(moved);
+            size = offset;
+            compactedSize = offset;
+        }
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+}
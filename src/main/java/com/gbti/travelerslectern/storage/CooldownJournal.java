@@ -0,0 +1,150 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.gbti.travelerslectern.utils.LecternRegistry;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.world.World;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append-only log of cooldown timestamp changes, replayed on top of the last full snapshot on load.
+ * <p>
+ * After a small header every record has a fixed size: id of the world (int), packed block position (long)
+ * and the new {@code lastTimeUsed} (long). World ids are numbered by this journal, and before the first record
+ * of a world in a file its identifier is written as an entry of its own: {@value #WORLD_ENTRY} (int), the id (int)
+ * and the identifier (unsigned short length and UTF-8). Replaying keeps the latest timestamp, so records that are
+ * already part of the snapshot are harmless.
+ * <p>
+ * Records are encoded on the server thread, appends, truncation and replay happen on the IO thread.
+ */
+public class CooldownJournal {
+
+    public static final int RECORD_SIZE = Integer.BYTES + Long.BYTES + Long.BYTES;
+    private static final int MAGIC = 0x544C4A32; // TLJ2
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int WORLD_ENTRY = -1;
+
+    private final Path file;
+    private final Reference2IntOpenHashMap<RegistryKey<World>> worldIds = new Reference2IntOpenHashMap<>(); // server thread
+    private final List<String> worldNames = new CopyOnWriteArrayList<>(); // identifier of every id, read by the IO thread
+    private final BitSet writtenWorlds = new BitSet(); // ids whose identifier is in the file, IO thread
+
+    public CooldownJournal(Path file) {
+        this.file = file;
+        worldIds.defaultReturnValue(-1);
+    }
+
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Writes the journal record of a lectern's current timestamp into the buffer.
+     */
+    public void encode(ByteBuffer buffer, LecternObject lectern) {
+        int world = worldIds.getInt(lectern.getWorldKey());
+        if(world < 0) {
+            world = worldNames.size();
+            worldNames.add(lectern.getWorldKey().getValue().toString());
+            worldIds.put(lectern.getWorldKey(), world);
+        }
+        buffer.putInt(world);
+        buffer.putLong(lectern.getPos());
+        buffer.putLong(lectern.getLastTimeUsed());
+    }
+
+    /**
+     * Appends encoded records to the end of the journal, preceded by the identifiers of the worlds that don't have
+     * a record in the file yet.
+     */
+    public void append(byte[] records, int length) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            boolean created = channel.size() == 0;
+            if(created) writtenWorlds.clear();
+
+            BitSet added = new BitSet();
+            ByteBuffer worlds = null;
+            for(int offset = 0; offset + RECORD_SIZE <= length; offset += RECORD_SIZE) {
+                int world = ByteBuffer.wrap(records, offset, Integer.BYTES).getInt();
+                if(writtenWorlds.get(world) || added.get(world)) continue;
+
+                byte[] name = worldNames.get(world).getBytes(StandardCharsets.UTF_8);
+                int size = Integer.BYTES * 2 + Short.BYTES + name.length;
+                if(worlds == null) worlds = ByteBuffer.allocate(size * 2);
+                else if(worlds.remaining() < size) worlds = ByteBuffer.allocate((worlds.capacity() + size) * 2).put(worlds.flip());
+                worlds.putInt(WORLD_ENTRY).putInt(world).putShort((short) name.length).put(name);
+                added.set(world);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(created ? HEADER_SIZE : 0);
+            if(created) header.putInt(MAGIC).flip();
+            ByteBuffer[] buffers = {header, worlds == null ? ByteBuffer.allocate(0) : worlds.flip(), ByteBuffer.wrap(records, 0, length)};
+            while(buffers[2].hasRemaining()) channel.write(buffers);
+            writtenWorlds.or(added);
+        }
+    }
+
+    /**
+     * Drops every record, called once a full snapshot containing them has been written.
+     */
+    public void truncate() throws IOException {
+        Files.deleteIfExists(file);
+        writtenWorlds.clear();
+    }
+
+    /**
+     * Applies the journal to the loaded lecterns. A partially written last entry, left by a crash, is ignored.
+     *
+     * @return the number of records that changed a lectern
+     */
+    public int replay(LecternRegistry lecterns) throws IOException {
+        if(Files.notExists(file)) return 0;
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) throw new IOException("Not a travelers lectern journal: " + file);
+
+        Int2ObjectOpenHashMap<RegistryKey<World>> worlds = new Int2ObjectOpenHashMap<>(); // absent for worlds without lecterns
+        int applied = 0;
+        while(buffer.remaining() >= Integer.BYTES) {
+            int world = buffer.getInt();
+            if(world == WORLD_ENTRY) {
+                if(buffer.remaining() < Integer.BYTES + Short.BYTES) break;
+                int id = buffer.getInt();
+                int length = Short.toUnsignedInt(buffer.getShort());
+                if(buffer.remaining() < length) break;
+                byte[] name = new byte[length];
+                buffer.get(name);
+                worlds.remove(id); // ids start over with every server start
+                String identifier = new String(name, StandardCharsets.UTF_8);
+                for(RegistryKey<World> worldKey : lecterns.getWorldKeys()) {
+                    if(worldKey.getValue().toString().equals(identifier)) worlds.put(id, worldKey);
+                }
+                continue;
+            }
+
+            if(buffer.remaining() < Long.BYTES * 2) break;
+            long pos = buffer.getLong();
+            long lastTimeUsed = buffer.getLong();
+
+            RegistryKey<World> worldKey = worlds.get(world);
+            LecternObject lectern = worldKey == null ? null : lecterns.get(worldKey, pos);
+            if(lectern != null && lastTimeUsed > lectern.getLastTimeUsed()) {
+                lectern.setLastTimeUsed(lastTimeUsed);
+                applied++;
+            }
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,191 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.gbti.travelerslectern.utils.PlayerCooldowns;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import net.minecraft.nbt.StringNbtReader;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The pretty-printed {@code travelers_lecterns.json} format. Every distinct book is written once as an SNBT
+ * string under {@code books} and lecterns reference it by content hash:
+ * <pre>
+ * { "books": { hash: snbt }, "lecterns": [ { pos, lastTimeUsed, cooldown, worldKey, book: hash, players? } ] }
+ * </pre>
+ * {@code players} is only there for per player lecterns, as alternating player keys and cooldown expiries.
+ * Files from older versions, with one {@code pos: { ..., item: snbt }} entry per lectern at the top level, are still read.
+ */
+public class JsonLecternStorage implements LecternStorage {
+
+    private final Path file;
+    private final Path tempFile;
+
+    public JsonLecternStorage(Path file) {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Streams the file entry by entry, an entry that fails to decode is reported and skipped
+     * instead of failing the whole load.
+     */
+    @Override
+    public List<LecternObject> load() throws IOException {
+        List<LecternObject> loaded = new ArrayList<>();
+        if(Files.notExists(file) || Files.size(file) == 0) return loaded;
+
+        Map<String, BookStore.Book> books = new HashMap<>();
+        try(JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while(reader.hasNext()) {
+                String name = reader.nextName();
+                if(name.equals("books")) {
+                    reader.beginObject();
+                    while(reader.hasNext()) readBook(reader.nextName(), reader, books);
+                    reader.endObject();
+                } else if(name.equals("lecterns")) {
+                    reader.beginArray();
+                    while(reader.hasNext()) readLectern(null, reader, books, loaded);
+                    reader.endArray();
+                } else {
+                    readLectern(name, reader, books, loaded); // older files keep the lecterns at the top level, keyed by position
+                }
+            }
+            reader.endObject();
+        } catch(IOException | IllegalStateException | JsonParseException e) {
+            TravelersLectern.logError("[TL] Error reading {}, keeping the {} lecterns read before the error: {}", file, loaded.size(), e.getMessage());
+        }
+        return loaded;
+    }
+
+    private static void readBook(String hash, JsonReader reader, Map<String, BookStore.Book> books) throws IOException {
+        String snbt = reader.nextString();
+        try {
+            books.put(hash, TravelersLectern.books.intern(StringNbtReader.parse(snbt)));
+        } catch(CommandSyntaxException e) {
+            TravelersLectern.logError("[TL] Skipping corrupt book {}: {}", hash, e.getMessage());
+        }
+    }
+
+    private static void readLectern(String key, JsonReader reader, Map<String, BookStore.Book> books, List<LecternObject> loaded) throws IOException {
+        JsonElement element = JsonParser.parseReader(reader);
+        try {
+            JsonObject json = element.getAsJsonObject();
+            long pos = key != null ? Long.parseLong(key) : json.get("pos").getAsLong();
+            loaded.add(decodeLectern(pos, json, books));
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Skipping corrupt lectern entry {}: {}", key != null ? key : loaded.size(), e.getMessage());
+        }
+    }
+
+    private static LecternObject decodeLectern(long pos, JsonObject json, Map<String, BookStore.Book> books) throws CommandSyntaxException {
+        long lastTimeUsed = json.get("lastTimeUsed").getAsLong();
+        int cooldown = json.get("cooldown").getAsInt();
+
+        JsonObject value = json.getAsJsonObject("worldKey").getAsJsonObject("value");
+        RegistryKey<World> worldKey = RegistryKey.of(RegistryKeys.WORLD,
+                Identifier.of(value.get("namespace").getAsString(), value.get("path").getAsString()));
+
+        BookStore.Book book;
+        if(json.has("book")) {
+            book = books.get(json.get("book").getAsString());
+            if(book == null) throw new JsonParseException("Unknown book " + json.get("book").getAsString());
+        } else {
+            book = TravelersLectern.books.intern(StringNbtReader.parse(json.get("item").getAsString()));
+        }
+
+        LecternObject lectern = new LecternObject(pos, lastTimeUsed, cooldown, worldKey, book);
+        if(json.has("players")) {
+            JsonArray players = json.getAsJsonArray("players");
+            long[] array = new long[players.size()];
+            for(int i = 0; i < array.length; i++) array[i] = players.get(i).getAsLong();
+            lectern.setPlayerCooldowns(PlayerCooldowns.fromArray(array));
+        }
+        return lectern;
+    }
+
+    @Override
+    public long save(Collection<LecternObject> lecterns) throws IOException {
+        // Write to a temporary file first so a crash mid-write never leaves a truncated file behind
+        try(JsonWriter writer = new JsonWriter(Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+
+            writer.name("books").beginObject();
+            Set<BookStore.Book> written = Collections.newSetFromMap(new IdentityHashMap<>());
+            for(LecternObject lectern : lecterns) {
+                BookStore.Book book = lectern.getStoredBook();
+                if(written.add(book)) writer.name(book.getHash()).value(book.getNbt().asString());
+            }
+            writer.endObject();
+
+            writer.name("lecterns").beginArray();
+            for(LecternObject lectern : lecterns) {
+                writer.beginObject();
+                writer.name("pos").value(lectern.getPos());
+                writer.name("lastTimeUsed").value(lectern.getLastTimeUsed());
+                writer.name("cooldown").value(lectern.getCooldown());
+                writer.name("worldKey").beginObject();
+                writeIdentifier(writer.name("registry"), lectern.getWorldKey().getRegistry());
+                writeIdentifier(writer.name("value"), lectern.getWorldKey().getValue());
+                writer.endObject();
+                writer.name("book").value(lectern.getStoredBook().getHash());
+                if(lectern.isPerPlayer()) {
+                    writer.name("players").beginArray();
+                    for(long value : lectern.getPlayerCooldowns().toArray()) writer.value(value);
+                    writer.endArray();
+                }
+                writer.endObject();
+            }
+            writer.endArray();
+
+            writer.endObject();
+        }
+        long size = Files.size(tempFile);
+        LecternStorage.replace(tempFile, file);
+        return size;
+    }
+
+    // Same shape Gson gave RegistryKey in the files of older versions
+    private static void writeIdentifier(JsonWriter writer, Identifier identifier) throws IOException {
+        writer.beginObject();
+        writer.name("namespace").value(identifier.getNamespace());
+        writer.name("path").value(identifier.getPath());
+        writer.endObject();
+    }
+}
@@ -0,0 +1,223 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.FileManager;
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternLog;
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.gbti.travelerslectern.utils.PlayerCooldowns;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the lectern definitions of several servers in sync through a {@link ReplicationLog} in a shared directory.
+ * <p>
+ * Lecterns created, edited or destroyed with commands here are appended to the log, and once a second the IO thread
+ * reads what was appended since the last read. The changes are applied on the server thread, in log order and this
+ * server's own included, without reloading anything, so every server ends up with the last change of each lectern.
+ * Changes made here after a read was queued hold back what it read for the same lecterns, see {@link LocalEdits}.
+ * Cooldown timestamps stay local to every server.
+ * <p>
+ * The id of this server and the position it has read up to are kept in the local config folder. The position is
+ * only saved along with the lecterns, so after a crash some changes are read again, which is harmless as applying a
+ * change twice gives the same result.
+ */
+public class LecternReplicator {
+
+    private static final Logger LOGGER = LogManager.getLogger("TravelersLectern");
+    private static final int POLL_TICKS = 20;
+
+    private final ReplicationLog log;
+    private final Path idFile;
+    private final Path offsetFile;
+    private final ExecutorService ioExecutor;
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final LocalEdits localEdits = new LocalEdits();
+    private MinecraftServer server;
+    private String serverId;
+    private ReplicationLog.Position readPosition = ReplicationLog.Position.START; // IO thread only
+    private ReplicationLog.Position appliedPosition = ReplicationLog.Position.START;
+    private ReplicationLog.Position savedPosition = ReplicationLog.Position.START;
+    private List<byte[]> batch;
+    private int ticksSincePoll;
+
+    public LecternReplicator(Path directory, Path idFile, Path offsetFile, ExecutorService ioExecutor) {
+        this.log = new ReplicationLog(directory.resolve("travelers_lecterns.log"));
+        this.idFile = idFile;
+        this.offsetFile = offsetFile;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /**
+     * Reads the id and position of this server, creating an id the first time, and catches up on the next poll.
+     */
+    public void start(MinecraftServer server) {
+        this.server = server;
+        try {
+            if(Files.notExists(idFile)) Files.writeString(idFile, UUID.randomUUID().toString());
+            serverId = Files.readString(idFile).trim();
+            appliedPosition = Files.exists(offsetFile) ? ReplicationLog.Position.parse(Files.readString(offsetFile)) : ReplicationLog.Position.START;
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error reading the replication state, reading the log from the start: {}", e.getMessage());
+            if(serverId == null) serverId = UUID.randomUUID().toString();
+            appliedPosition = ReplicationLog.Position.START;
+        }
+        savedPosition = appliedPosition;
+        ReplicationLog.Position position = appliedPosition;
+        ioExecutor.submit(() -> readPosition = position);
+        LOGGER.info("[TL] Replicating lecterns through {} as {}", log.getFile(), serverId);
+    }
+
+    /**
+     * Logs the definition of a lectern created or edited on this server.
+     */
+    public void publish(LecternObject lectern) {
+        try {
+            append(ReplicationLog.encode(serverId, lectern));
+            localEdits.record(lectern.getWorldKey(), lectern.getPos());
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error encoding a replicated lectern: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Logs a lectern destroyed on this server.
+     */
+    public void publishRemoval(RegistryKey<World> worldKey, long pos) {
+        try {
+            append(ReplicationLog.encodeRemoval(serverId, worldKey, pos));
+            localEdits.record(worldKey, pos);
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error encoding a replicated lectern: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Holds back the changes published from now on until {@link #commitBatch}, which appends them all at once.
+     */
+    public void beginBatch() {
+        if(batch == null) batch = new ArrayList<>();
+    }
+
+    public void commitBatch() {
+        List<byte[]> records = batch;
+        batch = null;
+        if(records != null && !records.isEmpty()) append(records);
+    }
+
+    private void append(byte[] record) {
+        if(batch != null) batch.add(record);
+        else append(List.of(record));
+    }
+
+    private void append(List<byte[]> records) {
+        ioExecutor.submit(() -> {
+            try {
+                log.append(records);
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error appending to the replication log: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Called every server tick, starts a read of the log once a second unless one is still running.
+     */
+    public void tick() {
+        if(server == null || ++ticksSincePoll < POLL_TICKS || !polling.compareAndSet(false, true)) return;
+        ticksSincePoll = 0;
+
+        long mark = localEdits.mark(); // queued behind the appends of every change counted so far
+        ioExecutor.submit(() -> {
+            try {
+                List<ReplicationLog.Change> changes = new ArrayList<>();
+                ReplicationLog.Position position = log.read(readPosition, changes);
+                readPosition = position;
+                server.execute(() -> {
+                    apply(changes, position, mark);
+                    polling.set(false);
+                });
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error reading the replication log: {}", e.getMessage());
+                polling.set(false);
+            }
+        });
+    }
+
+    private void apply(List<ReplicationLog.Change> changes, ReplicationLog.Position position, long mark) {
+        int applied = 0;
+        for(ReplicationLog.Change change : changes) {
+            if(localEdits.isNewer(change.world(), change.pos(), mark)) continue; // changed here since, that record comes later
+            FileManager.ensureLoaded(change.world(), change.pos());
+            if(change.isRemoval()) {
+                if(TravelersLectern.removeLectern(change.world(), change.pos()) != null) applied++;
+            } else if(applyDefinition(change)) {
+                applied++;
+            }
+        }
+        localEdits.forget(mark);
+        appliedPosition = position;
+        if(applied > 0) LecternLog.debug(LecternLog.Category.PERSISTENCE, "Applied {} replicated lectern changes", applied);
+    }
+
+    private boolean applyDefinition(ReplicationLog.Change change) {
+        ServerWorld world = server.getWorld(change.world());
+        if(world == null) {
+            LecternLog.debug(LecternLog.Category.PERSISTENCE, "Skipping a replicated lectern in unknown dimension {}", change.world().getValue());
+            return false;
+        }
+
+        BookStore.Book book = TravelersLectern.books.intern(change.book());
+        LecternObject lectern = TravelersLectern.lecterns.get(change.world(), change.pos());
+        if(lectern == null) {
+            lectern = new LecternObject(change.pos(), world.getTime(), change.cooldown(), change.world(), book);
+            if(change.perPlayer()) lectern.setPlayerCooldowns(new PlayerCooldowns());
+            TravelersLectern.addLectern(lectern);
+            return true;
+        }
+        if(lectern.getStoredBook() == book && lectern.getCooldown() == change.cooldown() && lectern.isPerPlayer() == change.perPlayer()) {
+            return false; // e.g. a change made here, read back
+        }
+
+        if(lectern.getStoredBook() != book) {
+            TravelersLectern.books.retain(book);
+            TravelersLectern.books.release(lectern.getStoredBook());
+            lectern.setStoredBook(book);
+        }
+        lectern.setCooldown(change.cooldown());
+        if(change.perPlayer() != lectern.isPerPlayer()) lectern.setPlayerCooldowns(change.perPlayer() ? new PlayerCooldowns() : null);
+        TravelersLectern.respawnScheduler.schedule(lectern);
+        FileManager.markDirty(lectern);
+        return true;
+    }
+
+    /**
+     * Saves the position applied so far, called right after the lecterns are handed to the IO thread so it is
+     * written behind them.
+     */
+    public void saveOffset() {
+        if(appliedPosition.equals(savedPosition)) return;
+        savedPosition = appliedPosition;
+
+        ReplicationLog.Position position = appliedPosition;
+        ioExecutor.submit(() -> {
+            try {
+                Files.writeString(offsetFile, position.toString());
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error saving the replication offset: {}", e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.utils.LecternObject;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A place the lectern registry is persisted to. Implementations are called from the writer thread
+ * with a detached snapshot, and from the server thread on load.
+ */
+public interface LecternStorage {
+
+    /**
+     * @return the short name of the format, as used for {@code storage_format} in the config
+     */
+    String getName();
+
+    boolean exists();
+
+    /**
+     * Loads every lectern. Entries that can't be decoded are reported and skipped.
+     */
+    List<LecternObject> load() throws IOException;
+
+    /**
+     * Replaces the stored data with the given snapshot, the previous data stays intact if writing fails.
+     *
+     * @return the number of bytes written
+     */
+    long save(Collection<LecternObject> lecterns) throws IOException;
+
+    /**
+     * Moves a fully written temporary file over the target, atomically where the file system supports it.
+     */
+    static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gbti.travelerslectern.storage;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.world.World;
+
+/**
+ * Numbers the changes this server publishes to the {@link ReplicationLog}, per dimension and position.
+ * <p>
+ * A read of the log is {@link #mark marked} when it is queued, behind every change published so far, so the records
+ * it returns can't include a change published after the mark. Records for a lectern changed here after the mark are
+ * skipped: the local change is appended after them and wins once it is read back, on every server alike. Everything
+ * else is applied in log order, this server's own records included. Server thread only.
+ */
+public class LocalEdits {
+
+    private final Reference2ObjectOpenHashMap<RegistryKey<World>, Long2LongOpenHashMap> edits = new Reference2ObjectOpenHashMap<>();
+    private long sequence;
+
+    /**
+     * Counts a change of a lectern published by this server.
+     */
+    public void record(RegistryKey<World> world, long pos) {
+        edits.computeIfAbsent(world, key -> new Long2LongOpenHashMap()).put(pos, ++sequence);
+    }
+
+    /**
+     * @return the mark of a read queued now, covering every change counted so far
+     */
+    public long mark() {
+        return sequence;
+    }
+
+    /**
+     * @return whether the lectern was changed here after the read with the given mark was queued
+     */
+    public boolean isNewer(RegistryKey<World> world, long pos, long mark) {
+        Long2LongOpenHashMap positions = edits.get(world);
+        return positions != null && positions.get(pos) > mark; // absent positions read as 0
+    }
+
+    /**
+     * Forgets the changes a read with the given mark has covered.
+     */
+    public void forget(long mark) {
+        edits.values().removeIf(positions -> {
+            positions.long2LongEntrySet().removeIf(entry -> entry.getLongValue() <= mark);
+            return positions.isEmpty();
+        });
+    }
+
+    public int size() {
+        int count = 0;
+        for(Long2LongOpenHashMap positions : edits.values()) count += positions.size();
+        return count;
+    }
+}
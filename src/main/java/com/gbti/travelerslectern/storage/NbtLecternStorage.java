@@ -0,0 +1,151 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.gbti.travelerslectern.utils.PlayerCooldowns;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the whole registry as a single gzip compressed binary NBT file. Books are kept as NBT
+ * so they never go through SNBT on either save or load, and every distinct book is written once.
+ * <pre>
+ * { version: 2, books: [ compound ], lecterns: [ { pos: long, world: string, lastTimeUsed: long, cooldown: int, book: int, players?: long[] } ] }
+ * </pre>
+ * {@code players} is only there for per player lecterns and holds alternating player keys and cooldown expiries.
+ * Version 1 files, which store the book of every lectern inline as {@code item}, are still read.
+ */
+public class NbtLecternStorage implements LecternStorage {
+
+    public static final int VERSION = 2;
+
+    private final Path file;
+    private final Path tempFile;
+
+    public NbtLecternStorage(Path file) {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    @Override
+    public String getName() {
+        return "nbt";
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    @Override
+    public List<LecternObject> load() throws IOException {
+        return decode(read());
+    }
+
+    /**
+     * Reads the file without decoding it, so it can be done off the server thread.
+     *
+     * @return the root compound, empty if there is no file
+     */
+    public NbtCompound read() throws IOException {
+        return Files.exists(file) ? NbtIo.readCompressed(file, NbtSizeTracker.ofUnlimitedBytes()) : new NbtCompound();
+    }
+
+    /**
+     * Decodes the lecterns of a file read with {@link #read}, interning their books. Must be called on the server thread.
+     */
+    public static List<LecternObject> decode(NbtCompound root) throws IOException {
+        List<LecternObject> loaded = new ArrayList<>();
+        int version = root.getInt("version");
+        if(version > VERSION) {
+            throw new IOException("Lectern data version " + version + " is newer than the supported version " + VERSION);
+        }
+
+        NbtList bookList = root.getList("books", NbtElement.COMPOUND_TYPE);
+        BookStore.Book[] books = new BookStore.Book[bookList.size()];
+        for(int i = 0; i < books.length; i++) books[i] = TravelersLectern.books.intern(bookList.getCompound(i));
+
+        NbtList list = root.getList("lecterns", NbtElement.COMPOUND_TYPE);
+        for(int i = 0; i < list.size(); i++) {
+            NbtCompound entry = list.getCompound(i);
+            long pos = entry.getLong("pos");
+            Identifier world = Identifier.tryParse(entry.getString("world"));
+
+            BookStore.Book book = null;
+            if(entry.contains("book", NbtElement.INT_TYPE)) {
+                int index = entry.getInt("book");
+                if(index >= 0 && index < books.length) book = books[index];
+            } else if(entry.contains("item", NbtElement.COMPOUND_TYPE)) {
+                book = TravelersLectern.books.intern(entry.getCompound("item"));
+            }
+
+            if(world == null || book == null) {
+                TravelersLectern.logError("[TL] Skipping corrupt lectern at {}", BlockPos.fromLong(pos));
+                continue;
+            }
+
+            RegistryKey<World> worldKey = RegistryKey.of(RegistryKeys.WORLD, world);
+            LecternObject lectern = new LecternObject(pos, entry.getLong("lastTimeUsed"), entry.getInt("cooldown"), worldKey, book);
+            if(entry.contains("players", NbtElement.LONG_ARRAY_TYPE)) lectern.setPlayerCooldowns(PlayerCooldowns.fromArray(entry.getLongArray("players")));
+            loaded.add(lectern);
+        }
+        return loaded;
+    }
+
+    @Override
+    public long save(Collection<LecternObject> lecterns) throws IOException {
+        NbtIo.writeCompressed(encode(lecterns, new NbtCompound()), tempFile);
+        long size = Files.size(tempFile);
+        LecternStorage.replace(tempFile, file);
+        return size;
+    }
+
+    /**
+     * Writes the lecterns into the given compound in the current format.
+     *
+     * @return the same compound
+     */
+    public static NbtCompound encode(Collection<LecternObject> lecterns, NbtCompound root) {
+        NbtList bookList = new NbtList();
+        Map<BookStore.Book, Integer> bookIndices = new IdentityHashMap<>();
+        NbtList list = new NbtList();
+        for(LecternObject lectern : lecterns) {
+            int bookIndex = bookIndices.computeIfAbsent(lectern.getStoredBook(), book -> {
+                bookList.add(book.getNbt());
+                return bookList.size() - 1;
+            });
+
+            NbtCompound entry = new NbtCompound();
+            entry.putLong("pos", lectern.getPos());
+            entry.putString("world", lectern.getWorldKey().getValue().toString());
+            entry.putLong("lastTimeUsed", lectern.getLastTimeUsed());
+            entry.putInt("cooldown", lectern.getCooldown());
+            entry.putInt("book", bookIndex);
+            if(lectern.isPerPlayer()) entry.putLongArray("players", lectern.getPlayerCooldowns().toArray());
+            list.add(entry);
+        }
+
+        root.putInt("version", VERSION);
+        root.put("books", bookList);
+        root.put("lecterns", list);
+        return root;
+    }
+}
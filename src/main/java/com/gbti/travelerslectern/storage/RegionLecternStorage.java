@@ -0,0 +1,290 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternLog;
+import com.gbti.travelerslectern.utils.LecternMetrics;
+import com.gbti.travelerslectern.utils.LecternObject;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits the lecterns into one NBT file per dimension and region of 32x32 chunks, the same granularity as
+ * the world's own {@code .mca} files, under {@code regions/<namespace>/<path>/r.<x>.<z>.dat}.
+ * <p>
+ * A shard is loaded into the registry when the first of its chunks loads and evicted once none of its chunks
+ * have been loaded for a while, so only lecterns around loaded areas are resident. Dirty shards are written on
+ * their own by the IO thread. A chunk load only queues the read of its shard on the IO thread, behind any write of
+ * that shard, and the lecterns are attached by {@link #attachLoaded} on a later tick. Commands and replication need
+ * the lecterns right away, so they finish a queued read or read the file themselves. Everything except the reads
+ * and writes happens on the server thread.
+ */
+public class RegionLecternStorage {
+
+    public static final int REGION_SHIFT = 5;
+
+    private static final class Shard {
+        private final RegistryKey<World> worldKey;
+        private final long region;
+        private final Path file;
+        private final Long2ObjectOpenHashMap<LecternObject> lecterns = new Long2ObjectOpenHashMap<>();
+        private final AtomicReference<List<LecternObject>> pendingSnapshot = new AtomicReference<>();
+        private Future<NbtCompound> loading; // read queued on the IO thread, not attached yet
+        private long loadStart;
+        private int loadedChunks;
+        private long idleSince;
+        private boolean dirty;
+
+        private Shard(RegistryKey<World> worldKey, long region, Path file) {
+            this.worldKey = worldKey;
+            this.region = region;
+            this.file = file;
+        }
+    }
+
+    private final Path directory;
+    private final ExecutorService ioExecutor;
+    private final Reference2ObjectOpenHashMap<RegistryKey<World>, Long2ObjectOpenHashMap<Shard>> shards = new Reference2ObjectOpenHashMap<>();
+    private final Map<Path, Integer> pendingWrites = new ConcurrentHashMap<>(); // writes queued per shard file, also for evicted shards
+    private final List<Shard> loading = new ArrayList<>();
+
+    public RegionLecternStorage(Path directory, ExecutorService ioExecutor) {
+        this.directory = directory;
+        this.ioExecutor = ioExecutor;
+    }
+
+    public boolean exists() {
+        return Files.isDirectory(directory);
+    }
+
+    public static long getRegion(long chunkPos) {
+        return ChunkPos.toLong(ChunkPos.getPackedX(chunkPos) >> REGION_SHIFT, ChunkPos.getPackedZ(chunkPos) >> REGION_SHIFT);
+    }
+
+    private Path getFile(RegistryKey<World> worldKey, long region) {
+        Identifier world = worldKey.getValue();
+        return directory.resolve(world.getNamespace()).resolve(world.getPath())
+                .resolve("r." + ChunkPos.getPackedX(region) + "." + ChunkPos.getPackedZ(region) + ".dat");
+    }
+
+    /**
+     * Counts a loaded chunk, queuing the read of its shard if it isn't resident.
+     */
+    public void onChunkLoad(RegistryKey<World> worldKey, long chunkPos) {
+        long region = getRegion(chunkPos);
+        Long2ObjectOpenHashMap<Shard> worldShards = shards.computeIfAbsent(worldKey, key -> new Long2ObjectOpenHashMap<>());
+        Shard shard = worldShards.get(region);
+        if(shard == null) {
+            shard = new Shard(worldKey, region, getFile(worldKey, region));
+            worldShards.put(region, shard);
+            shard.loadStart = System.nanoTime();
+            shard.loading = ioExecutor.submit(new NbtLecternStorage(shard.file)::read); // behind any write of the file
+            loading.add(shard);
+        }
+        shard.loadedChunks++;
+    }
+
+    /**
+     * Attaches the lecterns of the shards whose read has finished, called every tick.
+     */
+    public void attachLoaded() {
+        if(loading.isEmpty()) return;
+        loading.removeIf(shard -> {
+            if(shard.loading != null) {
+                if(!shard.loading.isDone()) return false;
+                finishLoading(shard);
+            }
+            return true; // also shards finished early by getOrLoad
+        });
+    }
+
+    private void finishLoading(Shard shard) {
+        Future<NbtCompound> read = shard.loading;
+        shard.loading = null;
+        try {
+            attach(shard, read.get());
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error loading lectern region {}: {}", shard.file, e.getMessage());
+        }
+    }
+
+    public void onChunkUnload(RegistryKey<World> worldKey, long chunkPos) {
+        Long2ObjectOpenHashMap<Shard> worldShards = shards.get(worldKey);
+        Shard shard = worldShards == null ? null : worldShards.get(getRegion(chunkPos));
+        if(shard != null && shard.loadedChunks > 0 && --shard.loadedChunks == 0) shard.idleSince = System.currentTimeMillis();
+    }
+
+    /**
+     * Loads the shard holding a block position if it isn't resident, without counting a loaded chunk,
+     * so it is evicted again with the next idle shards.
+     */
+    public void ensureLoaded(RegistryKey<World> worldKey, long pos) {
+        getOrLoad(worldKey, getRegion(ChunkPos.toLong(BlockPos.unpackLongX(pos) >> 4, BlockPos.unpackLongZ(pos) >> 4)));
+    }
+
+    /**
+     * Marks the shard of a lectern for saving and keeps its membership in line with the registry,
+     * so it is called both when a lectern changes and when it is added or removed.
+     */
+    public void markDirty(LecternObject lectern) {
+        Shard shard = getOrLoad(lectern.getWorldKey(), getRegion(lectern.getChunkPos()));
+        if(TravelersLectern.lecterns.get(lectern.getWorldKey(), lectern.getPos()) == lectern) {
+            shard.lecterns.put(lectern.getPos(), lectern);
+        } else {
+            shard.lecterns.remove(lectern.getPos(), lectern);
+        }
+        shard.dirty = true;
+    }
+
+    private Shard getOrLoad(RegistryKey<World> worldKey, long region) {
+        Long2ObjectOpenHashMap<Shard> worldShards = shards.computeIfAbsent(worldKey, key -> new Long2ObjectOpenHashMap<>());
+        Shard shard = worldShards.get(region);
+        if(shard != null) {
+            if(shard.loading != null) finishLoading(shard);
+            return shard;
+        }
+
+        shard = new Shard(worldKey, region, getFile(worldKey, region));
+        worldShards.put(region, shard);
+
+        try {
+            shard.loadStart = System.nanoTime();
+            NbtLecternStorage storage = new NbtLecternStorage(shard.file);
+            // Writes are only queued from this thread, so without one pending the file is up to date
+            attach(shard, pendingWrites.containsKey(shard.file) ? ioExecutor.submit(storage::read).get() : storage.read());
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error loading lectern region {}: {}", shard.file, e.getMessage());
+        }
+        return shard;
+    }
+
+    private void attach(Shard shard, NbtCompound root) throws IOException {
+        List<BookStore.Book> skipped = null;
+        for(LecternObject lectern : NbtLecternStorage.decode(root)) {
+            if(TravelersLectern.lecterns.get(shard.worldKey, lectern.getPos()) != null) { // created while the shard was away
+                if(skipped == null) skipped = new ArrayList<>();
+                skipped.add(lectern.getStoredBook());
+                continue;
+            }
+            TravelersLectern.attachLectern(lectern);
+            shard.lecterns.put(lectern.getPos(), lectern);
+        }
+        // Decoding interned their books without a reference, the ones no other lectern uses have to go
+        if(skipped != null) {
+            for(BookStore.Book book : skipped) TravelersLectern.books.forgetIfUnreferenced(book);
+        }
+
+        LecternMetrics.shardsLoaded++;
+        if(LecternLog.Category.PERSISTENCE.isEnabled()) {
+            LecternLog.debug(LecternLog.Category.PERSISTENCE, "Loaded region {} of {} with {} lecterns in {} us", new ChunkPos(shard.region),
+                    shard.worldKey.getValue(), shard.lecterns.size(), (System.nanoTime() - shard.loadStart) / 1000);
+        }
+    }
+
+    /**
+     * Queues every dirty shard for writing. A shard whose previous write is still waiting only has its snapshot replaced.
+     */
+    public void saveDirty() {
+        for(Long2ObjectOpenHashMap<Shard> worldShards : shards.values()) {
+            for(Shard shard : worldShards.values()) {
+                if(shard.dirty) save(shard);
+            }
+        }
+    }
+
+    private void save(Shard shard) {
+        shard.dirty = false;
+
+        List<LecternObject> snapshot = new ArrayList<>(shard.lecterns.size());
+        for(LecternObject lectern : shard.lecterns.values()) snapshot.add(lectern.copy());
+
+        if(shard.pendingSnapshot.getAndSet(snapshot) != null) return;
+        pendingWrites.merge(shard.file, 1, Integer::sum);
+        ioExecutor.submit(() -> {
+            try {
+                List<LecternObject> pending = shard.pendingSnapshot.getAndSet(null);
+                if(pending == null) return;
+                long start = System.nanoTime();
+                long bytes = write(shard.file, pending);
+                LecternMetrics.recordSave(System.nanoTime() - start, bytes);
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error saving lectern region {}: {}", shard.file, e.getMessage());
+            } finally {
+                pendingWrites.computeIfPresent(shard.file, (file, count) -> count == 1 ? null : count - 1);
+            }
+        });
+    }
+
+    private static long write(Path file, Collection<LecternObject> lecterns) throws IOException {
+        if(lecterns.isEmpty()) {
+            Files.deleteIfExists(file);
+            return 0;
+        }
+        Files.createDirectories(file.getParent());
+        return new NbtLecternStorage(file).save(lecterns);
+    }
+
+    /**
+     * Saves and drops the shards none of whose chunks have been loaded for {@code idleMillis}. Their lecterns
+     * leave the registry and the respawn schedule, they come back with the next chunk load.
+     */
+    public void evictIdle(long idleMillis) {
+        long now = System.currentTimeMillis();
+        for(Iterator<Long2ObjectOpenHashMap<Shard>> worlds = shards.values().iterator(); worlds.hasNext(); ) {
+            Long2ObjectOpenHashMap<Shard> worldShards = worlds.next();
+            for(Iterator<Shard> iterator = worldShards.values().iterator(); iterator.hasNext(); ) {
+                Shard shard = iterator.next();
+                if(shard.loadedChunks > 0 || shard.loading != null || now - shard.idleSince < idleMillis) continue;
+
+                if(shard.dirty) save(shard);
+                for(LecternObject lectern : shard.lecterns.values()) TravelersLectern.detachLectern(lectern);
+                iterator.remove();
+                LecternMetrics.shardsEvicted++;
+            }
+            if(worldShards.isEmpty()) worlds.remove();
+        }
+    }
+
+    /**
+     * Writes every lectern into its shard file right away, used to migrate from a single file.
+     */
+    public void migrate(Collection<LecternObject> lecterns) throws IOException {
+        Map<Path, List<LecternObject>> byFile = new HashMap<>();
+        for(LecternObject lectern : lecterns) {
+            byFile.computeIfAbsent(getFile(lectern.getWorldKey(), getRegion(lectern.getChunkPos())), file -> new ArrayList<>()).add(lectern);
+        }
+        Files.createDirectories(directory);
+        for(Map.Entry<Path, List<LecternObject>> entry : byFile.entrySet()) write(entry.getKey(), entry.getValue());
+    }
+
+    public int size() {
+        int count = 0;
+        for(Long2ObjectOpenHashMap<Shard> worldShards : shards.values()) count += worldShards.size();
+        return count;
+    }
+
+    public void clear() {
+        shards.clear();
+        loading.clear();
+    }
+}
@@ -0,0 +1,305 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.LecternObject;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ordered log of lectern definition changes shared by several servers through a common directory.
+ * <p>
+ * After a header holding a random epoch, every record is its length (int) followed by the id of the server that
+ * wrote it, the lectern's dimension and packed position, and for anything but a removal its cooldown, cooldown mode
+ * and book. Writers append whole records while holding a lock on the file, readers keep their own position and read
+ * under a shared lock, in bounded chunks. Cooldown timestamps are never logged.
+ * <p>
+ * Once the log has grown past {@value #COMPACT_MIN_BYTES} bytes and twice its size after the last compaction, the
+ * writer holding the lock rewrites it in place with only the last record of every position, removals included so
+ * servers that are behind still see them, under a new epoch. Readers notice the new epoch and read it from the start,
+ * which is harmless as applying a change twice gives the same result.
+ */
+public class ReplicationLog {
+
+    private static final int MAGIC = 0x544C5232; // TLR2
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES * 2; // magic, epoch, size after the last compaction
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final long COMPACT_MIN_BYTES = 1024 * 1024;
+
+    /**
+     * One logged change, {@code book} is null for a removal.
+     */
+    public record Change(String server, RegistryKey<World> world, long pos, int cooldown, boolean perPlayer, NbtElement book) {
+
+        public boolean isRemoval() {
+            return book == null;
+        }
+    }
+
+    /**
+     * How far a reader got: an offset in the log as it was for one epoch.
+     */
+    public record Position(long epoch, long offset) {
+
+        public static final Position START = new Position(0, 0);
+
+        @Override
+        public String toString() {
+            return epoch + " " + offset;
+        }
+
+        /**
+         * Parses {@link #toString}. A lone offset, or anything else, reads the log from the start.
+         */
+        public static Position parse(String position) {
+            String[] parts = position.trim().split(" ");
+            if(parts.length != 2) return START;
+            try {
+                return new Position(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            } catch(NumberFormatException e) {
+                return START;
+            }
+        }
+    }
+
+    private record Header(long epoch, long compactedSize) {}
+
+    @FunctionalInterface
+    private interface RecordHandler {
+        void accept(byte[] record) throws IOException;
+    }
+
+    private final Path file;
+
+    public ReplicationLog(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Encodes the current definition of a lectern, created or edited.
+     */
+    public static byte[] encode(String server, LecternObject lectern) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeUTF(server);
+        output.writeUTF(lectern.getWorldKey().getValue().toString());
+        output.writeLong(lectern.getPos());
+        output.writeBoolean(false);
+        output.writeInt(lectern.getCooldown());
+        output.writeBoolean(lectern.isPerPlayer());
+        NbtCompound book = new NbtCompound();
+        book.put("book", lectern.getItem());
+        NbtIo.write(book, output);
+        return bytes.toByteArray();
+    }
+
+    public static byte[] encodeRemoval(String server, RegistryKey<World> world, long pos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeUTF(server);
+        output.writeUTF(world.getValue().toString());
+        output.writeLong(pos);
+        output.writeBoolean(true);
+        return bytes.toByteArray();
+    }
+
+    private static Change decode(byte[] record) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        String server = input.readUTF();
+        RegistryKey<World> world = RegistryKey.of(RegistryKeys.WORLD, Identifier.of(input.readUTF()));
+        long pos = input.readLong();
+        if(input.readBoolean()) return new Change(server, world, pos, 0, false, null);
+
+        int cooldown = input.readInt();
+        boolean perPlayer = input.readBoolean();
+        NbtElement book = NbtIo.readCompound(input, NbtSizeTracker.ofUnlimitedBytes()).get("book");
+        if(book == null) throw new IOException("Replicated lectern without a book");
+        return new Change(server, world, pos, cooldown, perPlayer, book);
+    }
+
+    private static String decodeKey(byte[] record) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        input.readUTF();
+        return input.readUTF() + " " + input.readLong();
+    }
+
+    /**
+     * Appends records to the end of the log in one write, holding a lock on it so records of different servers
+     * never interleave, and compacts the log if it has grown enough.
+     */
+    public void append(List<byte[]> records) throws IOException {
+        Files.createDirectories(file.getParent());
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock lock = channel.lock()) {
+            Header header = readHeader(channel);
+            if(header == null) { // new, or a header cut short by a crash
+                header = new Header(ThreadLocalRandom.current().nextLong(), 0);
+                channel.truncate(0);
+                write(channel, 0, header(header.epoch(), 0).flip());
+            }
+
+            int length = 0;
+            for(byte[] record : records) length += Integer.BYTES + record.length;
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            for(byte[] record : records) buffer.putInt(record.length).put(record);
+
+            long size = channel.size();
+            write(channel, size, buffer.flip());
+            size += length;
+
+            if(size >= COMPACT_MIN_BYTES && size >= 2 * header.compactedSize()) compact(channel, size);
+        }
+    }
+
+    /**
+     * Rewrites the log with the last record of every position. Everything kept is read into memory first, which is
+     * bounded by the number of lecterns rather than the length of the log, then written over the start of the file.
+     */
+    private static void compact(FileChannel channel, long size) throws IOException {
+        Map<String, byte[]> latest = new LinkedHashMap<>();
+        readRecords(channel, HEADER_SIZE, size, record -> {
+            try {
+                String key = decodeKey(record);
+                latest.remove(key); // so the order follows the last change of every position
+                latest.put(key, record);
+            } catch(IOException e) {
+                TravelersLectern.logError("[TL] Dropping an unreadable replicated change while compacting: {}", e.getMessage());
+            }
+        });
+
+        long compactedSize = HEADER_SIZE;
+        for(byte[] record : latest.values()) compactedSize += Integer.BYTES + record.length;
+
+        long offset = write(channel, 0, header(ThreadLocalRandom.current().nextLong(), compactedSize).flip());
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        for(byte[] record : latest.values()) {
+            if(buffer.remaining() < Integer.BYTES + record.length) {
+                offset = write(channel, offset, buffer.flip());
+                buffer.clear();
+            }
+            if(buffer.remaining() < Integer.BYTES + record.length) {
+                offset = write(channel, offset, ByteBuffer.allocate(Integer.BYTES + record.length).putInt(record.length).put(record).flip());
+            } else {
+                buffer.putInt(record.length).put(record);
+            }
+        }
+        offset = write(channel, offset, buffer.flip());
+        channel.truncate(offset);
+        channel.force(false);
+    }
+
+    private static ByteBuffer header(long epoch, long compactedSize) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putLong(epoch).putLong(compactedSize);
+    }
+
+    /**
+     * @return the header, or null if the file is shorter than one
+     */
+    private Header readHeader(FileChannel channel) throws IOException {
+        if(channel.size() < HEADER_SIZE) return null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        while(buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0);
+        buffer.flip();
+        if(buffer.getInt() != MAGIC) throw new IOException("Not a travelers lectern replication log: " + file);
+        return new Header(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @return the offset right after what was written
+     */
+    private static long write(FileChannel channel, long offset, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) offset += channel.write(buffer, offset);
+        return offset;
+    }
+
+    /**
+     * Reads the complete records written after a position. A position of another epoch means the log was compacted
+     * or started over since, it is then read from the start, as is a position past the end. A record that can't be
+     * decoded is logged and skipped.
+     *
+     * @return the position to continue from
+     */
+    public Position read(Position from, List<Change> changes) throws IOException {
+        if(Files.notExists(file)) return Position.START;
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+            Header header = readHeader(channel);
+            if(header == null) return Position.START;
+
+            long size = channel.size();
+            long offset = from.epoch() == header.epoch() && from.offset() >= HEADER_SIZE && from.offset() <= size ? from.offset() : HEADER_SIZE;
+            offset = readRecords(channel, offset, size, record -> {
+                try {
+                    changes.add(decode(record));
+                } catch(Exception e) {
+                    TravelersLectern.logError("[TL] Skipping an unreadable replicated change: {}", e.getMessage());
+                }
+            });
+            return new Position(header.epoch(), offset);
+        }
+    }
+
+    /**
+     * Hands every complete record between two offsets to the handler, reading {@value #CHUNK_SIZE} bytes at a time.
+     * Records are split across chunks freely, a record larger than a chunk gets a buffer of its own.
+     *
+     * @return the offset right after the last complete record
+     */
+    private static long readRecords(FileChannel channel, long offset, long end, RecordHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE).flip();
+        long position = offset; // where the next read starts
+        while(true) {
+            boolean hasLength = buffer.remaining() >= Integer.BYTES;
+            int length = hasLength ? buffer.getInt(buffer.position()) : 0;
+            if(length < 0 || length > MAX_RECORD_SIZE) throw new IOException("Corrupt replication log record at " + offset);
+
+            if(hasLength && buffer.remaining() >= Integer.BYTES + length) {
+                byte[] record = new byte[length];
+                buffer.position(buffer.position() + Integer.BYTES).get(record);
+                offset += Integer.BYTES + length;
+                handler.accept(record);
+                continue;
+            }
+
+            if(position >= end) return offset; // the rest is still being written
+            if(Integer.BYTES + length > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(Integer.BYTES + length).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            buffer.limit(buffer.position() + (int) Math.min(buffer.remaining(), end - position));
+            int read = channel.read(buffer, position);
+            buffer.flip();
+            if(read <= 0) return offset;
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.utils.LecternObject;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.world.PersistentState;
+import net.minecraft.world.World;
+import net.minecraft.world.dimension.DimensionType;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Keeps the lecterns of one dimension in that dimension's own {@code data/travelers_lectern.dat}, so they are
+ * saved together with the world by Minecraft and are part of its backups. The layout is the one of
+ * {@link NbtLecternStorage}.
+ * <p>
+ * The state holds no lecterns itself, it writes whatever the registry has for its dimension when the world saves.
+ */
+public class WorldLecternState extends PersistentState {
+
+    public static final String ID = TravelersLectern.MOD_ID;
+
+    private final RegistryKey<World> worldKey;
+    private List<LecternObject> loaded = List.of();
+
+    private WorldLecternState(RegistryKey<World> worldKey) {
+        this.worldKey = worldKey;
+    }
+
+    public static PersistentState.Type<WorldLecternState> type(RegistryKey<World> worldKey) {
+        return new PersistentState.Type<>(() -> new WorldLecternState(worldKey), (nbt, registries) -> fromNbt(worldKey, nbt), null);
+    }
+
+    /**
+     * @return the file the state of a world is saved to
+     */
+    public static Path getFile(ServerWorld world) {
+        Path root = world.getServer().getSavePath(WorldSavePath.ROOT);
+        return DimensionType.getSaveDirectory(world.getRegistryKey(), root).resolve("data").resolve(ID + ".dat");
+    }
+
+    private static WorldLecternState fromNbt(RegistryKey<World> worldKey, NbtCompound nbt) {
+        WorldLecternState state = new WorldLecternState(worldKey);
+        try {
+            state.loaded = NbtLecternStorage.decode(nbt);
+        } catch(Exception e) {
+            TravelersLectern.logError("[TL] Error loading the lecterns of {}: {}", worldKey.getValue(), e.getMessage());
+        }
+        return state;
+    }
+
+    /**
+     * @return the lecterns read from the world save, handed out once
+     */
+    public List<LecternObject> takeLoaded() {
+        List<LecternObject> lecterns = loaded;
+        loaded = List.of();
+        return lecterns;
+    }
+
+    @Override
+    public NbtCompound writeNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registries) {
+        return NbtLecternStorage.encode(TravelersLectern.lecterns.getWorld(worldKey).values(), nbt);
+    }
+}
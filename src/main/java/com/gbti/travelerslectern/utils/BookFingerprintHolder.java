@@ -0,0 +1,18 @@
+package com.gbti.travelerslectern.utils;
+
+/**
+ * Implemented by lectern block entities through a mixin. Remembers the {@link BookStore.Book#getFingerprint fingerprint}
+ * of the traveler's lectern book last put in, so checking that the right book is there is a long comparison instead
+ * of a deep comparison of every page. Any other change to the book forgets it.
+ */
+public interface BookFingerprintHolder {
+
+    long UNKNOWN = 0;
+
+    /**
+     * @return the fingerprint of the book held, or {@link #UNKNOWN}
+     */
+    long travelersLectern$getBookFingerprint();
+
+    void travelersLectern$setBookFingerprint(long fingerprint);
+}
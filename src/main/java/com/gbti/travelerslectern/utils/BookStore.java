@@ -0,0 +1,327 @@
+package com.gbti.travelerslectern.utils;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import com.gbti.travelerslectern.storage.BookBlobFile;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtElement;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import net.minecraft.registry.RegistryWrapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Content addressed store for the books held by traveler's lecterns. Lecterns showing the same book
+ * share a single {@link Book}, so its NBT and decoded stack exist once no matter how many lecterns use it.
+ * <p>
+ * Books are reference counted by the lecterns registered on the server, a book no registered lectern
+ * uses any more is dropped from the store.
+ * <p>
+ * With a memory cap set, the payload of every book (its NBT and decoded stack) is also written once to a
+ * {@link BookBlobFile} by the IO thread, and the payloads used least recently are dropped from memory while the
+ * resident ones go over the cap. The book itself, its hash and fingerprint stay, and the payload is read back
+ * from the file the next time it is needed. A book that leaves the store keeps its payload in the file, so it isn't
+ * written again if it comes back, until {@link #compactBlob} drops it. Everything but {@link Book#getNbt} is for
+ * the server thread.
+ */
+public class BookStore {
+
+    public static final class Book {
+        private final BookStore store;
+        private final String hash;
+        private final long fingerprint;
+        private final int size;
+        private volatile NbtElement nbt;
+        private volatile boolean written; // set by the IO thread once the payload is in the blob file
+        private int references;
+        private ItemStack template;
+        private RegistryWrapper.WrapperLookup templateRegistries;
+
+        private Book(BookStore store, HashCode hash, NbtElement nbt) {
+            this.store = store;
+            this.hash = hash.toString();
+            this.fingerprint = hash.asLong();
+            this.size = nbt.getSizeInBytes();
+            this.nbt = nbt;
+        }
+
+        /**
+         * @return the hex encoded content hash, used to reference the book from saved lecterns
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * @return the first 64 bits of the content hash
+         */
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Returns the encoded book, read from the blob file if its payload was evicted. Safe from any thread,
+         * the IO thread uses it to save lecterns, only the server thread brings a payload back into memory.
+         *
+         * @return the encoded book, shared by every lectern using it and never modified
+         * @throws UncheckedIOException if an evicted payload can't be read back
+         */
+        public NbtElement getNbt() {
+            NbtElement nbt = this.nbt;
+            return nbt != null ? nbt : store.readBlob(this);
+        }
+
+        public boolean isResident() {
+            return nbt != null;
+        }
+
+        public int getReferences() {
+            return references;
+        }
+
+        /**
+         * Returns the decoded book. It is decoded once and kept until different registries are passed in,
+         * the returned stack is shared and must not be modified or handed out.
+         *
+         * @return the decoded book, or {@link ItemStack#EMPTY} if the NBT can't be decoded
+         */
+        public ItemStack getTemplate(RegistryWrapper.WrapperLookup registries) {
+            NbtElement nbt = store.memoryCap > 0 ? store.touch(this) : this.nbt;
+            if(nbt == null) return ItemStack.EMPTY;
+            if(template == null || templateRegistries != registries) {
+                LecternMetrics.templateMisses++;
+                template = ItemStack.fromNbt(registries, nbt).orElse(ItemStack.EMPTY);
+                templateRegistries = registries;
+            } else {
+                LecternMetrics.templateHits++;
+            }
+            return template;
+        }
+    }
+
+    private final Map<String, Book> books = new HashMap<>();
+    private final ObjectLinkedOpenHashSet<Book> resident = new ObjectLinkedOpenHashSet<>(); // least recently used first
+    private long memoryCap;
+    private long residentBytes;
+    private BookBlobFile blob;
+    private ExecutorService ioExecutor;
+
+    /**
+     * Enables evicting book payloads to a blob file once the resident ones take more than {@code memoryCap} bytes,
+     * or disables it with a cap of 0. Meant to be called before the books are loaded, the blob file is emptied.
+     */
+    public void setMemoryCap(long memoryCap, BookBlobFile blob, ExecutorService ioExecutor) {
+        clear();
+        this.memoryCap = memoryCap;
+        this.blob = memoryCap > 0 ? blob : null;
+        this.ioExecutor = ioExecutor;
+        if(this.blob == null) return;
+
+        try {
+            blob.reset();
+        } catch(IOException e) {
+            TravelersLectern.logError("[TL] Error creating the book blob file, keeping every book in memory: {}", e.getMessage());
+            this.memoryCap = 0;
+            this.blob = null;
+        }
+    }
+
+    /**
+     * Marks a book as just used, reading its payload back first if it was evicted.
+     *
+     * @return the payload of the book, or null if an evicted payload could not be read back
+     */
+    private NbtElement touch(Book book) {
+        NbtElement nbt = book.nbt;
+        if(nbt != null) {
+            LecternMetrics.bookPayloadHits++;
+            resident.addAndMoveToLast(book);
+            return nbt;
+        }
+
+        LecternMetrics.bookPayloadMisses++;
+        try {
+            nbt = readBlob(book);
+        } catch(UncheckedIOException e) {
+            TravelersLectern.logError("[TL] Error reading book {} back from the blob file: {}", book.getHash(), e.getMessage());
+            return null;
+        }
+        book.nbt = nbt;
+        addResident(book);
+        return nbt;
+    }
+
+    private NbtElement readBlob(Book book) {
+        try {
+            if(blob == null) throw new IOException("Book " + book.getHash() + " is not in the blob file");
+            return blob.read(book.getHash());
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Counts a payload that just came into memory. It is kept even if it doesn't fit under the cap by itself,
+     * it is being used right now and is evicted by a later {@link #trim()} instead.
+     */
+    private void addResident(Book book) {
+        resident.addAndMoveToLast(book);
+        residentBytes += book.size;
+        trim(book);
+    }
+
+    /**
+     * Evicts the payloads used least recently until the resident ones fit under the memory cap. Payloads
+     * the IO thread hasn't written to the blob file yet stay, they are evicted by a later call.
+     */
+    public void trim() {
+        trim(null);
+    }
+
+    private void trim(Book pinned) {
+        if(memoryCap <= 0 || residentBytes <= memoryCap) return;
+
+        Iterator<Book> iterator = resident.iterator();
+        while(residentBytes > memoryCap && iterator.hasNext()) {
+            Book book = iterator.next();
+            if(!book.written || book == pinned) continue;
+
+            iterator.remove();
+            residentBytes -= book.size;
+            book.nbt = null;
+            book.template = null;
+            book.templateRegistries = null;
+        }
+    }
+
+    /**
+     * Writes the payload of a book to the blob file on the IO thread, unless it is still there from an earlier
+     * time the book was in the store. Going through the IO thread either way keeps it in order with compactions.
+     */
+    private void writeBlob(Book book) {
+        NbtElement nbt = book.nbt;
+        BookBlobFile blob = this.blob;
+        ioExecutor.submit(() -> {
+            try {
+                if(!blob.contains(book.getHash())) blob.append(book.getHash(), BookBlobFile.encode(nbt));
+                book.written = true;
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error writing book {} to the blob file, it stays in memory: {}", book.getHash(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Rewrites the blob file on the IO thread with only the books still in the store, once it has grown enough
+     * since the last time. Called along with the saves.
+     */
+    public void compactBlob() {
+        if(blob == null || !blob.needsCompaction()) return;
+
+        Set<String> live = new HashSet<>(books.keySet());
+        BookBlobFile blob = this.blob;
+        ioExecutor.submit(() -> {
+            try {
+                long before = blob.getSize();
+                blob.compact(live);
+                LecternLog.debug(LecternLog.Category.PERSISTENCE, "Compacted the book blob file from {} to {} bytes", before, blob.getSize());
+            } catch(Exception e) {
+                TravelersLectern.logError("[TL] Error compacting the book blob file: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void forget(Book book) {
+        if(memoryCap > 0 && resident.remove(book)) residentBytes -= book.size;
+    }
+
+    /**
+     * Hashes the SNBT form of an element, whose compound keys are sorted so equal books always hash the same.
+     */
+    public static HashCode hash(NbtElement nbt) {
+        return Hashing.murmur3_128().hashString(nbt.asString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the stored book with the same content, or stores this one. The reference count is left untouched.
+     */
+    public Book intern(NbtElement nbt) {
+        HashCode hash = hash(nbt);
+        return books.computeIfAbsent(hash.toString(), key -> {
+            Book book = new Book(this, hash, nbt);
+            if(memoryCap > 0) {
+                writeBlob(book);
+                addResident(book);
+            }
+            return book;
+        });
+    }
+
+    /**
+     * Interns a book and counts a reference to it, for a lectern being registered.
+     */
+    public Book acquire(NbtElement nbt) {
+        Book book = intern(nbt);
+        retain(book);
+        return book;
+    }
+
+    public void retain(Book book) {
+        book.references++;
+    }
+
+    /**
+     * Drops a reference to a book, for a lectern being removed. The book is forgotten once nothing uses it.
+     */
+    public void release(Book book) {
+        if(--book.references <= 0 && books.remove(book.getHash(), book)) forget(book);
+    }
+
+    /**
+     * Forgets a book if no lectern holds a reference to it, e.g. one interned for a loaded lectern that was skipped.
+     */
+    public void forgetIfUnreferenced(Book book) {
+        if(book.references <= 0 && books.remove(book.getHash(), book)) forget(book);
+    }
+
+    /**
+     * Forgets every book without references, e.g. the ones interned by a load that was thrown away.
+     */
+    public void purgeUnreferenced() {
+        books.values().removeIf(book -> {
+            if(book.references > 0) return false;
+            forget(book);
+            return true;
+        });
+    }
+
+    public void clear() {
+        books.clear();
+        resident.clear();
+        residentBytes = 0;
+    }
+
+    /**
+     * @return the estimated size of the payloads in memory, only tracked with a memory cap
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public long getMemoryCap() {
+        return memoryCap;
+    }
+
+    public int size() {
+        return books.size();
+    }
+}
@@ -0,0 +1,122 @@
+package com.gbti.travelerslectern.utils;
+
+import com.gbti.travelerslectern.TravelersLectern;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import net.minecraft.block.LecternBlock;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds traveler's lecterns whose block is gone without the mod being told, e.g. after an explosion, a piston,
+ * a world editing tool or a region reset, and drops them from the registry.
+ * <p>
+ * Every tick a bounded slice of the registered lecterns is checked, going round all of them, and only those in
+ * loaded chunks are looked at. A lectern whose block is no longer a {@link LecternBlock} is quarantined first, either
+ * by the audit or straight away when its block is replaced, and removed once it is still missing after
+ * {@value #QUARANTINE_TICKS} ticks, so a lectern briefly replaced by a tool isn't lost.
+ */
+public class LecternAuditor {
+
+    private static final long QUARANTINE_TICKS = 20 * 60;
+    private static final int RECENT = 10;
+
+    private final List<LecternObject> round = new ArrayList<>();
+    private final Reference2LongOpenHashMap<LecternObject> quarantined = new Reference2LongOpenHashMap<>();
+    private final ArrayDeque<String> recentlyRemoved = new ArrayDeque<>(RECENT);
+    private int cursor;
+    private long audited;
+    private long removed;
+
+    /**
+     * Checks up to {@code maxLecterns} lecterns, starting a new round through all of them once the last one ended.
+     */
+    public void tick(MinecraftServer server, long now, int maxLecterns) {
+        if(maxLecterns <= 0) return;
+
+        if(cursor >= round.size()) {
+            round.clear();
+            cursor = 0;
+            cleanUp();
+            if(TravelersLectern.lecterns.isEmpty()) return;
+            TravelersLectern.lecterns.forEach(round::add);
+        }
+
+        int end = Math.min(round.size(), cursor + maxLecterns);
+        for(; cursor < end; cursor++) {
+            LecternObject lectern = round.get(cursor);
+            round.set(cursor, null);
+            if(TravelersLectern.lecterns.get(lectern.getWorldKey(), lectern.getPos()) != lectern) continue; // removed or replaced since
+
+            ServerWorld world = server.getWorld(lectern.getWorldKey());
+            if(world == null || !lectern.isChunkLoaded(world)) continue; // can't tell without loading the chunk
+            audited++;
+            audit(lectern, world, now);
+        }
+    }
+
+    private void audit(LecternObject lectern, ServerWorld world, long now) {
+        if(world.getBlockState(lectern.getBlockPos()).getBlock() instanceof LecternBlock) {
+            if(quarantined.removeLong(lectern) != 0) LecternLog.debug(LecternLog.Category.TICK, "Lectern at {} is back, released from quarantine", lectern.getBlockPos());
+            return;
+        }
+
+        long since = quarantined.getLong(lectern);
+        if(since == 0) {
+            quarantine(lectern, now);
+        } else if(now - since >= QUARANTINE_TICKS) {
+            remove(lectern);
+        }
+    }
+
+    /**
+     * Called when the block of a lectern is replaced by something else, the next audit of it decides whether it goes.
+     */
+    public void quarantine(LecternObject lectern, long now) {
+        if(quarantined.containsKey(lectern)) return;
+        quarantined.put(lectern, Math.max(1, now));
+        LecternLog.debug(LecternLog.Category.TICK, "Lectern at {} is no longer a lectern block, quarantined", lectern.getBlockPos());
+        LecternLog.trace(lectern, "block is gone, quarantined");
+    }
+
+    private void remove(LecternObject lectern) {
+        quarantined.removeLong(lectern);
+        TravelersLectern.removeLectern(lectern.getWorldKey(), lectern.getPos());
+        removed++;
+
+        BlockPos pos = lectern.getBlockPos();
+        if(recentlyRemoved.size() == RECENT) recentlyRemoved.removeFirst();
+        recentlyRemoved.addLast(lectern.getWorldKey().getValue() + " " + pos.getX() + " " + pos.getY() + " " + pos.getZ());
+        LecternLog.debug(LecternLog.Category.TICK, "Removed the lectern at {} in {}, its block is gone", pos, lectern.getWorldKey().getValue());
+    }
+
+    /**
+     * Forgets quarantined lecterns that were removed some other way, e.g. destroyed with the command.
+     */
+    private void cleanUp() {
+        quarantined.keySet().removeIf(lectern -> TravelersLectern.lecterns.get(lectern.getWorldKey(), lectern.getPos()) != lectern);
+    }
+
+    public long getAudited() {
+        return audited;
+    }
+
+    public long getRemoved() {
+        return removed;
+    }
+
+    public int getQuarantined() {
+        return quarantined.size();
+    }
+
+    /**
+     * @return the last lecterns removed, oldest first, as {@code "<dimension> <x> <y> <z>"}
+     */
+    public List<String> getRecentlyRemoved() {
+        return List.copyOf(recentlyRemoved);
+    }
+}
@@ -0,0 +1,135 @@
+package com.gbti.travelerslectern.utils;
+
+import com.gbti.travelerslectern.FileManager;
+import com.gbti.travelerslectern.TravelersLectern;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.LecternBlockEntity;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.Locale;
+
+/**
+ * Creates, edits or destroys every traveler's lectern in a box, for the region commands.
+ * <p>
+ * The loaded chunks in the box are scanned for lectern block entities a few chunks per tick, so a large box
+ * doesn't stall the server, and chunks that aren't loaded are skipped rather than loaded. Once the scan is done
+ * the lecterns found are changed in one go and committed with a single save, see {@link FileManager#commitBatch}.
+ */
+public class LecternBatch {
+
+    public enum Action {
+        CREATE("Created"),
+        EDIT("Edited"),
+        DESTROY("Destroyed");
+
+        private final String done;
+
+        Action(String done) {
+            this.done = done;
+        }
+    }
+
+    public static final int MAX_CHUNKS = 64 * 64;
+    private static final int CHUNKS_PER_TICK = 8;
+
+    private final Action action;
+    private final ServerCommandSource source;
+    private final ServerWorld world;
+    private final BlockBox box;
+    private final int time;
+    private final Boolean perPlayer;
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int chunksX;
+    private final int chunks;
+    private final LongArrayList found = new LongArrayList();
+    private int nextChunk;
+    private int unloadedChunks;
+
+    /**
+     * @param time the cooldown for created and edited lecterns, unused when destroying
+     * @param perPlayer the cooldown mode, null to keep the current one when editing
+     */
+    public LecternBatch(Action action, ServerCommandSource source, BlockBox box, int time, Boolean perPlayer) {
+        this.action = action;
+        this.source = source;
+        this.world = source.getWorld();
+        this.box = box;
+        this.time = time;
+        this.perPlayer = perPlayer;
+        this.minChunkX = ChunkSectionPos.getSectionCoord(box.getMinX());
+        this.minChunkZ = ChunkSectionPos.getSectionCoord(box.getMinZ());
+        this.chunksX = ChunkSectionPos.getSectionCoord(box.getMaxX()) - minChunkX + 1;
+        this.chunks = (int) getChunkCount(box);
+    }
+
+    /**
+     * @return the number of chunks a box spans
+     */
+    public static long getChunkCount(BlockBox box) {
+        return (long) (ChunkSectionPos.getSectionCoord(box.getMaxX()) - ChunkSectionPos.getSectionCoord(box.getMinX()) + 1)
+                * (ChunkSectionPos.getSectionCoord(box.getMaxZ()) - ChunkSectionPos.getSectionCoord(box.getMinZ()) + 1);
+    }
+
+    /**
+     * Scans the next chunks, and applies the batch once every chunk has been scanned.
+     *
+     * @return true once the batch is done
+     */
+    public boolean tick() {
+        int end = Math.min(chunks, nextChunk + CHUNKS_PER_TICK);
+        for(; nextChunk < end; nextChunk++) {
+            WorldChunk chunk = world.getChunkManager().getWorldChunk(minChunkX + nextChunk % chunksX, minChunkZ + nextChunk / chunksX);
+            if(chunk == null) {
+                unloadedChunks++;
+                continue;
+            }
+            for(BlockEntity blockEntity : chunk.getBlockEntities().values()) {
+                if(blockEntity instanceof LecternBlockEntity && box.contains(blockEntity.getPos())) found.add(blockEntity.getPos().asLong());
+            }
+        }
+        if(nextChunk < chunks) return false;
+
+        apply();
+        return true;
+    }
+
+    private void apply() {
+        int changed = 0;
+        FileManager.beginBatch();
+        for(int i = 0; i < found.size(); i++) {
+            BlockPos pos = BlockPos.fromLong(found.getLong(i));
+            // The scan took a few ticks, so the lectern may have changed or been unloaded since
+            if(!world.isChunkLoaded(pos) || !(world.getBlockEntity(pos) instanceof LecternBlockEntity be)) continue;
+
+            LecternObject lectern = TravelersLectern.lecterns.get(world, pos);
+            switch(action) {
+                case CREATE -> {
+                    if(lectern != null || !be.hasBook()) continue;
+                    LecternObject.createTravelersLectern(world, pos, be, time, perPlayer != null && perPlayer);
+                }
+                case EDIT -> {
+                    if(lectern == null) continue;
+                    LecternObject.editTravelersLectern(lectern, time, perPlayer);
+                }
+                case DESTROY -> {
+                    if(!LecternObject.destroyTravelersLectern(world.getRegistryKey(), pos.asLong())) continue;
+                }
+            }
+            changed++;
+        }
+        FileManager.commitBatch();
+
+        int lecternsChanged = changed;
+        source.sendFeedback(() -> Text.literal(String.format(Locale.ROOT, "%s %d travelers lecterns out of %d lecterns found%s", action.done, lecternsChanged,
+                found.size(), unloadedChunks == 0 ? "" : ", skipped " + unloadedChunks + " chunks that are not loaded")), false);
+        TravelersLectern.logDebug("[TL] {} {} lecterns in {} of {}", action.done, lecternsChanged, box, world.getRegistryKey().getValue());
+    }
+}
@@ -0,0 +1,150 @@
+package com.gbti.travelerslectern.utils;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Debug logging for the hot paths, per category, and tracing of single lecterns.
+ * <p>
+ * Every method has a fixed number of parameters and takes primitives as primitives, so a call for a disabled
+ * category is a field read and a return: no varargs array and no boxing. Arguments that are costly to build
+ * should still be guarded with {@link Category#isEnabled()}.
+ * <p>
+ * Tracing logs what happens to chosen lecterns only, whatever the categories, optionally one event out of every
+ * few, so one problem lectern can be followed on a busy server. Nothing is looked up while no lectern is traced.
+ */
+public final class LecternLog {
+
+    public enum Category {
+        TICK("tick"),
+        INTERACTION("interaction"),
+        PERSISTENCE("persistence");
+
+        private final String name;
+        private final String prefix;
+        private boolean enabled;
+
+        Category(String name) {
+            this.name = name;
+            this.prefix = "[TL " + name + "] ";
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    private static final class Trace {
+        private final int every;
+        private int events;
+
+        private Trace(int every) {
+            this.every = every;
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("TravelersLectern");
+    private static final Reference2ObjectOpenHashMap<LecternObject, Trace> traced = new Reference2ObjectOpenHashMap<>();
+
+    private LecternLog() {}
+
+    /**
+     * Enables the categories named in a comma separated list, unknown names are logged and ignored.
+     */
+    public static void enable(String categories) {
+        for(String name : categories.split(",")) {
+            if(name.isBlank()) continue;
+            Category category = getCategory(name.trim());
+            if(category != null) category.setEnabled(true);
+            else LOGGER.warn("[TL] Unknown debug category {}", name.trim());
+        }
+    }
+
+    public static void enableAll() {
+        for(Category category : Category.values()) category.setEnabled(true);
+    }
+
+    private static Category getCategory(String name) {
+        for(Category category : Category.values()) {
+            if(category.name.equalsIgnoreCase(name)) return category;
+        }
+        return null;
+    }
+
+    public static void debug(Category category, String message) {
+        if(category.enabled) LOGGER.info(category.prefix + message);
+    }
+
+    public static void debug(Category category, String message, Object a) {
+        if(category.enabled) LOGGER.info(category.prefix + message, a);
+    }
+
+    public static void debug(Category category, String message, Object a, Object b) {
+        if(category.enabled) LOGGER.info(category.prefix + message, a, b);
+    }
+
+    public static void debug(Category category, String message, Object a, Object b, Object c) {
+        if(category.enabled) LOGGER.info(category.prefix + message, a, b, c);
+    }
+
+    public static void debug(Category category, String message, Object a, Object b, Object c, Object d) {
+        if(category.enabled) LOGGER.info(category.prefix + message, a, b, c, d);
+    }
+
+    public static void debug(Category category, String message, long a) {
+        if(category.enabled) LOGGER.info(category.prefix + message, a);
+    }
+
+    public static void debug(Category category, String message, Object a, long b) {
+        if(category.enabled) LOGGER.info(category.prefix + message, a, b);
+    }
+
+    public static void debug(Category category, String message, Object a, long b, long c) {
+        if(category.enabled) LOGGER.info(category.prefix + message, a, b, c);
+    }
+
+    /**
+     * Starts tracing a lectern, logging one event out of every {@code every}, or stops tracing it.
+     *
+     * @return whether the lectern is traced now
+     */
+    public static boolean toggleTrace(LecternObject lectern, int every) {
+        if(traced.remove(lectern) != null) return false;
+        traced.put(lectern, new Trace(Math.max(1, every)));
+        return true;
+    }
+
+    public static void stopTracing(LecternObject lectern) {
+        if(!traced.isEmpty()) traced.remove(lectern);
+    }
+
+    public static int getTraced() {
+        return traced.size();
+    }
+
+    public static void trace(LecternObject lectern, String message) {
+        if(!traced.isEmpty() && sample(lectern)) LOGGER.info("[TL trace] {} {}: " + message, lectern.getWorldKey().getValue(), lectern.getBlockPos());
+    }
+
+    public static void trace(LecternObject lectern, String message, long a) {
+        if(!traced.isEmpty() && sample(lectern)) LOGGER.info("[TL trace] {} {}: " + message, lectern.getWorldKey().getValue(), lectern.getBlockPos(), a);
+    }
+
+    public static void trace(LecternObject lectern, String message, long a, long b) {
+        if(!traced.isEmpty() && sample(lectern)) LOGGER.info("[TL trace] {} {}: " + message, lectern.getWorldKey().getValue(), lectern.getBlockPos(), a, b);
+    }
+
+    private static boolean sample(LecternObject lectern) {
+        Trace trace = traced.get(lectern);
+        return trace != null && trace.events++ % trace.every == 0;
+    }
+}
@@ -0,0 +1,145 @@
+package com.gbti.travelerslectern.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms for the work the mod does on the server.
+ * <p>
+ * Recording never allocates. Server thread metrics are plain fields, the ones written by the
+ * persistence thread are atomic. Readers on other threads may see slightly stale values, which is fine for stats.
+ */
+public final class LecternMetrics {
+
+    /**
+     * Latency histogram with power of two nanosecond buckets. Written by a single thread.
+     */
+    public static final class Histogram {
+        private final long[] buckets = new long[64];
+        private long count;
+        private long total;
+        private long max;
+
+        public void record(long nanos) {
+            buckets[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))]++;
+            count++;
+            total += nanos;
+            if(nanos > max) max = nanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * @return the upper bound of the bucket holding the given percentile, so at most twice the real value
+         */
+        public long getPercentileNanos(double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for(int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if(seen >= rank && seen > 0) return Math.min(max, (1L << (i + 1)) - 1);
+            }
+            return 0;
+        }
+
+        public void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            total = 0;
+            max = 0;
+        }
+    }
+
+    // Respawn tick, server thread
+    public static final Histogram respawnTick = new Histogram();
+    public static long lecternsPolled;
+    public static long lecternsRespawned;
+    public static long lecternsDeferred;
+    public static long respawnTicksOverBudget;
+
+    // Interactions with traveler's lecterns, server thread
+    public static final Histogram interaction = new Histogram();
+    public static long interactionsThrottled;
+
+    // Decoded book templates, server thread
+    public static long templateHits;
+    public static long templateMisses;
+
+    // Book payloads with a memory cap, server thread
+    public static long bookPayloadHits;
+    public static long bookPayloadMisses;
+
+    // Region shards, server thread
+    public static long shardsLoaded;
+    public static long shardsEvicted;
+
+    // Persistence, written on the persistence thread
+    public static final AtomicLong saves = new AtomicLong();
+    public static final AtomicLong bytesWritten = new AtomicLong();
+    public static final AtomicLong lastSaveNanos = new AtomicLong();
+    public static final AtomicLong maxSaveNanos = new AtomicLong();
+    public static final AtomicLong totalSaveNanos = new AtomicLong();
+
+    private LecternMetrics() {}
+
+    public static void recordSave(long nanos, long bytes) {
+        saves.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+        lastSaveNanos.set(nanos);
+        totalSaveNanos.addAndGet(nanos);
+        maxSaveNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public static double getTemplateHitRate() {
+        long lookups = templateHits + templateMisses;
+        return lookups == 0 ? 0 : (double) templateHits / lookups;
+    }
+
+    public static void reset() {
+        respawnTick.reset();
+        interaction.reset();
+        lecternsPolled = 0;
+        lecternsRespawned = 0;
+        lecternsDeferred = 0;
+        respawnTicksOverBudget = 0;
+        interactionsThrottled = 0;
+        templateHits = 0;
+        templateMisses = 0;
+        bookPayloadHits = 0;
+        bookPayloadMisses = 0;
+        shardsLoaded = 0;
+        shardsEvicted = 0;
+        saves.set(0);
+        bytesWritten.set(0);
+        lastSaveNanos.set(0);
+        maxSaveNanos.set(0);
+        totalSaveNanos.set(0);
+    }
+
+    public static final String CSV_HEADER = "time,lecterns,books,respawn_tick_p50_us,respawn_tick_p99_us,respawn_tick_max_us,polled,respawned,deferred,"
+            + "interactions,interaction_p50_us,interaction_p99_us,saves,save_mean_ms,save_max_ms,bytes_written,template_hit_rate";
+
+    /**
+     * @return one CSV line matching {@link #CSV_HEADER}
+     */
+    public static String toCsvLine(long time, int lecterns, int books) {
+        long saveCount = saves.get();
+        return time + "," + lecterns + "," + books + ","
+                + respawnTick.getPercentileNanos(50) / 1000 + "," + respawnTick.getPercentileNanos(99) / 1000 + "," + respawnTick.getMaxNanos() / 1000 + ","
+                + lecternsPolled + "," + lecternsRespawned + "," + lecternsDeferred + ","
+                + interaction.getCount() + "," + interaction.getPercentileNanos(50) / 1000 + "," + interaction.getPercentileNanos(99) / 1000 + ","
+                + saveCount + "," + (saveCount == 0 ? 0 : totalSaveNanos.get() / saveCount / 1_000_000) + "," + maxSaveNanos.get() / 1_000_000 + ","
+                + bytesWritten.get() + "," + String.format(Locale.ROOT, "%.3f", getTemplateHitRate());
+    }
+}
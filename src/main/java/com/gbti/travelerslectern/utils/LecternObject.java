@@ -1,36 +1,92 @@
 package com.gbti.travelerslectern.utils;
 
+import static com.gbti.travelerslectern.TravelersLectern.addLectern;
+import static com.gbti.travelerslectern.TravelersLectern.auditor;
+import static com.gbti.travelerslectern.TravelersLectern.batches;
+import static com.gbti.travelerslectern.TravelersLectern.books;
 import static com.gbti.travelerslectern.TravelersLectern.getBlockPlayerIsLooking;
 import static com.gbti.travelerslectern.TravelersLectern.lecterns;
+import static com.gbti.travelerslectern.TravelersLectern.removeLectern;
+import static com.gbti.travelerslectern.TravelersLectern.respawnScheduler;
 
 import com.gbti.travelerslectern.FileManager;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.LecternBlock;
 import net.minecraft.block.entity.LecternBlockEntity;
+import net.minecraft.command.argument.BlockPosArgumentType;
+import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.hit.HitResult;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.world.World;
 
+import java.util.List;
+import java.util.Locale;
+
 public class LecternObject {
 
+    private final long pos;
     private long lastTimeUsed;
     private int cooldown;
-    private RegistryKey<World> worldKey;
-    private NbtElement item;
+    private final RegistryKey<World> worldKey;
+    private BookStore.Book book;
+    private long scheduledTick = RespawnScheduler.UNSCHEDULED;
+    private PlayerCooldowns playerCooldowns;
 
-    public LecternObject(long lastTimeUsed, int cooldown, RegistryKey<World> worldKey, NbtElement item) {
+    public LecternObject(long pos, long lastTimeUsed, int cooldown, RegistryKey<World> worldKey, BookStore.Book book) {
+        this.pos = pos;
         this.lastTimeUsed = lastTimeUsed;
         this.cooldown = cooldown;
         this.worldKey = worldKey;
-        this.item = item;
+        this.book = book;
+    }
+
+    /**
+     * @return a detached copy of the persisted fields, used to hand snapshots to the writer thread
+     */
+    public LecternObject copy() {
+        LecternObject copy = new LecternObject(pos, lastTimeUsed, cooldown, worldKey, book);
+        if(playerCooldowns != null) copy.playerCooldowns = playerCooldowns.copy();
+        return copy;
+    }
+
+    /**
+     * @return the packed block position of the lectern, see {@link BlockPos#asLong()}
+     */
+    public long getPos() {
+        return pos;
+    }
+
+    public BlockPos getBlockPos() {
+        return BlockPos.fromLong(pos);
+    }
+
+    /**
+     * @return the packed position of the chunk the lectern is in, see {@link ChunkPos#toLong()}
+     */
+    public long getChunkPos() {
+        return ChunkPos.toLong(ChunkSectionPos.getSectionCoord(BlockPos.unpackLongX(pos)), ChunkSectionPos.getSectionCoord(BlockPos.unpackLongZ(pos)));
+    }
+
+    /**
+     * Checks whether the chunk of the lectern is loaded, without ever loading it.
+     */
+    public boolean isChunkLoaded(World world) {
+        return world.getChunkManager().isChunkLoaded(ChunkSectionPos.getSectionCoord(BlockPos.unpackLongX(pos)), ChunkSectionPos.getSectionCoord(BlockPos.unpackLongZ(pos)));
     }
 
     public long getLastTimeUsed() {
@@ -49,20 +105,81 @@ public class LecternObject {
         this.cooldown = cooldown;
     }
 
+    /**
+     * @return the world time at which the book of this lectern may be respawned again
+     */
+    public long getRespawnTick() {
+        return lastTimeUsed + cooldown * 20L;
+    }
+
+    /**
+     * @return whether every player has their own cooldown on this lectern, which then never gives its book away
+     */
+    public boolean isPerPlayer() {
+        return playerCooldowns != null;
+    }
+
+    /**
+     * @return the per player cooldowns, or null when the lectern has one cooldown for everyone
+     */
+    public PlayerCooldowns getPlayerCooldowns() {
+        return playerCooldowns;
+    }
+
+    public void setPlayerCooldowns(PlayerCooldowns playerCooldowns) {
+        this.playerCooldowns = playerCooldowns;
+    }
+
+    public long getScheduledTick() {
+        return scheduledTick;
+    }
+
+    public void setScheduledTick(long scheduledTick) {
+        this.scheduledTick = scheduledTick;
+    }
+
     public RegistryKey<World> getWorldKey() {
         return worldKey;
     }
 
-    public void setWorldKey(RegistryKey<World> worldKey) {
-        this.worldKey = worldKey;
+    public NbtElement getItem() {
+        return book.getNbt();
     }
 
-    public NbtElement getItem() {
-        return item;
+    public BookStore.Book getStoredBook() {
+        return book;
     }
 
-    public void setItem(NbtElement item) {
-        this.item = item;
+    /**
+     * @return the content fingerprint of the book, computed once when the book was interned
+     */
+    public long getBookFingerprint() {
+        return book.getFingerprint();
+    }
+
+    /**
+     * Switches the book of this lectern, reference counting is left to the caller.
+     */
+    public void setStoredBook(BookStore.Book book) {
+        this.book = book;
+    }
+
+    /**
+     * Returns the decoded book of this lectern, shared with every lectern holding the same book.
+     * The returned stack must not be modified or handed out.
+     *
+     * @param registries the registries of the world the lectern is in
+     * @return the decoded book, or {@link ItemStack#EMPTY} if the stored NBT can't be decoded
+     */
+    public ItemStack getBookTemplate(RegistryWrapper.WrapperLookup registries) {
+        return book.getTemplate(registries);
+    }
+
+    /**
+     * @return a fresh copy of the decoded book, safe to put in a lectern or an inventory
+     */
+    public ItemStack getBook(RegistryWrapper.WrapperLookup registries) {
+        return getBookTemplate(registries).copy();
     }
 
     public static void lecternCommand() {
@@ -70,34 +187,15 @@ public class LecternObject {
         CommandRegistrationCallback.EVENT.register(((dispatcher, registryAccess, environment) -> dispatcher.register(CommandManager.literal("travelers_lectern").requires(source -> {
             if(source instanceof ServerCommandSource serverSource) return serverSource.hasPermissionLevel(4);
             else return false;
-        }).then(CommandManager.literal("create").then(CommandManager.argument("time", IntegerArgumentType.integer(0)).executes(ctx -> {
-            if(ctx.getSource().getEntity() instanceof ServerPlayerEntity player) {
-                if(createTravelersLectern(player, IntegerArgumentType.getInteger(ctx, "time"))) {
-                    ctx.getSource().sendFeedback(() -> Text.literal("Successfully created travelers lectern"), false);
-                } else {
-                    ctx.getSource().sendFeedback(() -> Text.literal("Make sure the block you are facing is a lectern and has a book"), false);
-                }
-            } else ctx.getSource().sendFeedback(() -> Text.literal("A player is required to run this command here"), false);
-            return 1;
-        })).executes(ctx -> {
-            if(ctx.getSource().getEntity() instanceof ServerPlayerEntity player) {
-                if(createTravelersLectern(player, 1800)) {
-                    ctx.getSource().sendFeedback(() -> Text.literal("Successfully created travelers lectern"), false);
-                } else {
-                    ctx.getSource().sendFeedback(() -> Text.literal("Make sure the block you are facing is a lectern and has a book"), false);
-                }
-            } else ctx.getSource().sendFeedback(() -> Text.literal("A player is required to run this command here"), false);
-            return 1;
-        })).then(CommandManager.literal("edit").then(CommandManager.argument("time", IntegerArgumentType.integer(0)).executes(ctx -> {
-            if(ctx.getSource().getEntity() instanceof ServerPlayerEntity player) {
-                if(editTravelersLectern(player, IntegerArgumentType.getInteger(ctx, "time"))) {
-                    ctx.getSource().sendFeedback(() -> Text.literal("Successfully edited travelers lectern"), false);
-                } else {
-                    ctx.getSource().sendFeedback(() -> Text.literal("Make sure the block you are facing is a travelers lectern"), false);
-                }
-            } else ctx.getSource().sendFeedback(() -> Text.literal("A player is required to run this command here"), false);
-            return 1;
-        }))).then(CommandManager.literal("destroy").executes(ctx -> {
+        }).then(CommandManager.literal("create").then(CommandManager.argument("time", IntegerArgumentType.integer(0))
+                .executes(ctx -> create(ctx, IntegerArgumentType.getInteger(ctx, "time"), false))
+                .then(CommandManager.literal("global").executes(ctx -> create(ctx, IntegerArgumentType.getInteger(ctx, "time"), false)))
+                .then(CommandManager.literal("per_player").executes(ctx -> create(ctx, IntegerArgumentType.getInteger(ctx, "time"), true)))
+        ).executes(ctx -> create(ctx, 1800, false))).then(CommandManager.literal("edit").then(CommandManager.argument("time", IntegerArgumentType.integer(0))
+                .executes(ctx -> edit(ctx, IntegerArgumentType.getInteger(ctx, "time"), null))
+                .then(CommandManager.literal("global").executes(ctx -> edit(ctx, IntegerArgumentType.getInteger(ctx, "time"), false)))
+                .then(CommandManager.literal("per_player").executes(ctx -> edit(ctx, IntegerArgumentType.getInteger(ctx, "time"), true)))
+        )).then(CommandManager.literal("destroy").executes(ctx -> {
             if(ctx.getSource().getEntity() instanceof ServerPlayerEntity player) {
                 if(destroyTravelersLectern(player)) {
                     ctx.getSource().sendFeedback(() -> Text.literal("Successfully destroyed travelers lectern"), false);
@@ -106,21 +204,132 @@ public class LecternObject {
                 }
             } else ctx.getSource().sendFeedback(() -> Text.literal("A player is required to run this command here"), false);
             return 1;
-        })))));
+        })).then(regionCommand()).then(CommandManager.literal("trace").executes(ctx -> trace(ctx, 1))
+                .then(CommandManager.argument("every", IntegerArgumentType.integer(1)).executes(ctx -> trace(ctx, IntegerArgumentType.getInteger(ctx, "every"))))
+        ).then(CommandManager.literal("audit").executes(ctx -> {
+            ctx.getSource().sendFeedback(LecternObject::auditText, false);
+            return 1;
+        })).then(CommandManager.literal("stats").executes(ctx -> {
+            ctx.getSource().sendFeedback(LecternObject::statsText, false);
+            return 1;
+        }).then(CommandManager.literal("reset").executes(ctx -> {
+            LecternMetrics.reset();
+            ctx.getSource().sendFeedback(() -> Text.literal("Travelers lectern stats reset"), false);
+            return 1;
+        }))))));
     }
 
+    private static LiteralArgumentBuilder<ServerCommandSource> regionCommand() {
+        return CommandManager.literal("region").then(CommandManager.literal("create").then(CommandManager.argument("from", BlockPosArgumentType.blockPos())
+                .then(CommandManager.argument("to", BlockPosArgumentType.blockPos())
+                        .executes(ctx -> region(ctx, LecternBatch.Action.CREATE, 1800, false))
+                        .then(CommandManager.argument("time", IntegerArgumentType.integer(0))
+                                .executes(ctx -> region(ctx, LecternBatch.Action.CREATE, IntegerArgumentType.getInteger(ctx, "time"), false))
+                                .then(CommandManager.literal("global").executes(ctx -> region(ctx, LecternBatch.Action.CREATE, IntegerArgumentType.getInteger(ctx, "time"), false)))
+                                .then(CommandManager.literal("per_player").executes(ctx -> region(ctx, LecternBatch.Action.CREATE, IntegerArgumentType.getInteger(ctx, "time"), true)))))
+        )).then(CommandManager.literal("edit").then(CommandManager.argument("from", BlockPosArgumentType.blockPos())
+                .then(CommandManager.argument("to", BlockPosArgumentType.blockPos())
+                        .then(CommandManager.argument("time", IntegerArgumentType.integer(0))
+                                .executes(ctx -> region(ctx, LecternBatch.Action.EDIT, IntegerArgumentType.getInteger(ctx, "time"), null))
+                                .then(CommandManager.literal("global").executes(ctx -> region(ctx, LecternBatch.Action.EDIT, IntegerArgumentType.getInteger(ctx, "time"), false)))
+                                .then(CommandManager.literal("per_player").executes(ctx -> region(ctx, LecternBatch.Action.EDIT, IntegerArgumentType.getInteger(ctx, "time"), true)))))
+        )).then(CommandManager.literal("destroy").then(CommandManager.argument("from", BlockPosArgumentType.blockPos())
+                .then(CommandManager.argument("to", BlockPosArgumentType.blockPos())
+                        .executes(ctx -> region(ctx, LecternBatch.Action.DESTROY, 0, null)))
+        ));
+    }
 
-    public static boolean createTravelersLectern(ServerPlayerEntity player, int time) {
+    private static int region(CommandContext<ServerCommandSource> ctx, LecternBatch.Action action, int time, Boolean perPlayer) {
+        BlockBox box = BlockBox.create(BlockPosArgumentType.getBlockPos(ctx, "from"), BlockPosArgumentType.getBlockPos(ctx, "to"));
+        long chunks = LecternBatch.getChunkCount(box);
+        if(chunks > LecternBatch.MAX_CHUNKS) {
+            ctx.getSource().sendFeedback(() -> Text.literal("The area spans " + chunks + " chunks, at most " + LecternBatch.MAX_CHUNKS + " are allowed"), false);
+            return 0;
+        }
+
+        batches.add(new LecternBatch(action, ctx.getSource(), box, time, perPlayer));
+        ctx.getSource().sendFeedback(() -> Text.literal("Looking for lecterns in " + chunks + " chunks..."), false);
+        return 1;
+    }
+
+    private static int create(CommandContext<ServerCommandSource> ctx, int time, boolean perPlayer) {
+        if(ctx.getSource().getEntity() instanceof ServerPlayerEntity player) {
+            if(createTravelersLectern(player, time, perPlayer)) {
+                ctx.getSource().sendFeedback(() -> Text.literal("Successfully created travelers lectern"), false);
+            } else {
+                ctx.getSource().sendFeedback(() -> Text.literal("Make sure the block you are facing is a lectern and has a book"), false);
+            }
+        } else ctx.getSource().sendFeedback(() -> Text.literal("A player is required to run this command here"), false);
+        return 1;
+    }
+
+    private static int edit(CommandContext<ServerCommandSource> ctx, int time, Boolean perPlayer) {
+        if(ctx.getSource().getEntity() instanceof ServerPlayerEntity player) {
+            if(editTravelersLectern(player, time, perPlayer)) {
+                ctx.getSource().sendFeedback(() -> Text.literal("Successfully edited travelers lectern"), false);
+            } else {
+                ctx.getSource().sendFeedback(() -> Text.literal("Make sure the block you are facing is a travelers lectern"), false);
+            }
+        } else ctx.getSource().sendFeedback(() -> Text.literal("A player is required to run this command here"), false);
+        return 1;
+    }
+
+    private static int trace(CommandContext<ServerCommandSource> ctx, int every) {
+        if(ctx.getSource().getEntity() instanceof ServerPlayerEntity player) {
+            BlockHitResult hitResult = getBlockPlayerIsLooking(player);
+            LecternObject lectern = hitResult.getType() == HitResult.Type.BLOCK ? lecterns.get(player.getWorld(), hitResult.getBlockPos()) : null;
+            if(lectern == null) {
+                ctx.getSource().sendFeedback(() -> Text.literal("Make sure the block you are facing is a travelers lectern"), false);
+            } else if(LecternLog.toggleTrace(lectern, every)) {
+                ctx.getSource().sendFeedback(() -> Text.literal("Tracing this travelers lectern in the server log" + (every > 1 ? ", one event out of every " + every : "")), false);
+            } else {
+                ctx.getSource().sendFeedback(() -> Text.literal("Stopped tracing this travelers lectern"), false);
+            }
+        } else ctx.getSource().sendFeedback(() -> Text.literal("A player is required to run this command here"), false);
+        return 1;
+    }
+
+    private static Text auditText() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "Lecterns audited: %d, quarantined: %d, removed: %d",
+                auditor.getAudited(), auditor.getQuarantined(), auditor.getRemoved()));
+        List<String> removed = auditor.getRecentlyRemoved();
+        if(!removed.isEmpty()) text.append(String.format(Locale.ROOT, "%nLast removed: %s", String.join(", ", removed)));
+        return Text.literal(text.toString());
+    }
+
+    private static Text statsText() {
+        long saves = LecternMetrics.saves.get();
+        String regions = FileManager.getLoadedRegions() < 0 ? "" : String.format(Locale.ROOT, "%nRegions: %d loaded, %d loads, %d evictions",
+                FileManager.getLoadedRegions(), LecternMetrics.shardsLoaded, LecternMetrics.shardsEvicted);
+        String payloads = books.getMemoryCap() <= 0 ? "" : String.format(Locale.ROOT, "%nBook payloads: %d of %d KB resident, %d hits, %d misses",
+                books.getResidentBytes() / 1024, books.getMemoryCap() / 1024, LecternMetrics.bookPayloadHits, LecternMetrics.bookPayloadMisses);
+        return Text.literal(String.format(Locale.ROOT,
+                "Travelers lecterns: %d, distinct books: %d, scheduled: %d, deferred chunks: %d%n"
+                        + "Respawn tick: p50 %d us, p99 %d us, max %d us, polled %d, respawned %d, deferred %d, over budget %d ticks%n"
+                        + "Interactions: %d, p50 %d us, p99 %d us, max %d us, throttled %d%n"
+                        + "Saves: %d, mean %d ms, max %d ms, last %d ms, %d bytes written%n"
+                        + "Book cache: %d hits, %d misses (%.1f%% hit rate)",
+                lecterns.size(), books.size(), respawnScheduler.size(), respawnScheduler.deferredChunks(),
+                LecternMetrics.respawnTick.getPercentileNanos(50) / 1000, LecternMetrics.respawnTick.getPercentileNanos(99) / 1000,
+                LecternMetrics.respawnTick.getMaxNanos() / 1000, LecternMetrics.lecternsPolled, LecternMetrics.lecternsRespawned, LecternMetrics.lecternsDeferred,
+                LecternMetrics.respawnTicksOverBudget,
+                LecternMetrics.interaction.getCount(), LecternMetrics.interaction.getPercentileNanos(50) / 1000,
+                LecternMetrics.interaction.getPercentileNanos(99) / 1000, LecternMetrics.interaction.getMaxNanos() / 1000, LecternMetrics.interactionsThrottled,
+                saves, saves == 0 ? 0 : LecternMetrics.totalSaveNanos.get() / saves / 1_000_000, LecternMetrics.maxSaveNanos.get() / 1_000_000,
+                LecternMetrics.lastSaveNanos.get() / 1_000_000, LecternMetrics.bytesWritten.get(),
+                LecternMetrics.templateHits, LecternMetrics.templateMisses, LecternMetrics.getTemplateHitRate() * 100) + regions + payloads);
+    }
+
+
+    public static boolean createTravelersLectern(ServerPlayerEntity player, int time, boolean perPlayer) {
         BlockHitResult hitResult = getBlockPlayerIsLooking(player);
 
         if (hitResult.getType() == HitResult.Type.BLOCK) {
             BlockState block = player.getWorld().getBlockState(hitResult.getBlockPos());
 
-            if(!lecterns.containsKey(hitResult.getBlockPos().asLong()) && block.getBlock() instanceof LecternBlock && player.getWorld().getBlockEntity(hitResult.getBlockPos()) instanceof LecternBlockEntity be) {
+            if(!lecterns.contains(player.getWorld(), hitResult.getBlockPos()) && block.getBlock() instanceof LecternBlock && player.getWorld().getBlockEntity(hitResult.getBlockPos()) instanceof LecternBlockEntity be) {
                 if(be.hasBook()) {
-                    lecterns.put(hitResult.getBlockPos().asLong(), new LecternObject(player.getWorld().getTime(), time, player.getWorld().getRegistryKey(),
-                            be.getBook().encode(player.getWorld().getRegistryManager()))); // we encode the item as nbt element
-                    FileManager.saveLecterns();
+                    createTravelersLectern(player.getWorld(), hitResult.getBlockPos(), be, time, perPlayer);
                     return true;
                 }
             }
@@ -128,15 +337,17 @@ public class LecternObject {
         return false;
     }
 
-    public static boolean editTravelersLectern(ServerPlayerEntity player, int time) {
+    /**
+     * @param perPlayer the new cooldown mode, or null to keep the current one
+     */
+    public static boolean editTravelersLectern(ServerPlayerEntity player, int time, Boolean perPlayer) {
         BlockHitResult hitResult = getBlockPlayerIsLooking(player);
 
         if (hitResult.getType() == HitResult.Type.BLOCK) {
             BlockState block = player.getWorld().getBlockState(hitResult.getBlockPos());
 
-            if(lecterns.containsKey(hitResult.getBlockPos().asLong()) && block.getBlock() instanceof LecternBlock && player.getWorld().getBlockEntity(hitResult.getBlockPos()) instanceof LecternBlockEntity be) {
-                lecterns.get(hitResult.getBlockPos().asLong()).setCooldown(time);
-                FileManager.saveLecterns();
+            if(lecterns.contains(player.getWorld(), hitResult.getBlockPos()) && block.getBlock() instanceof LecternBlock && player.getWorld().getBlockEntity(hitResult.getBlockPos()) instanceof LecternBlockEntity be) {
+                editTravelersLectern(lecterns.get(player.getWorld(), hitResult.getBlockPos()), time, perPlayer);
                 return true;
             }
         }
@@ -149,13 +360,43 @@ public class LecternObject {
         if (hitResult.getType() == HitResult.Type.BLOCK) {
             BlockState block = player.getWorld().getBlockState(hitResult.getBlockPos());
 
-            if(lecterns.containsKey(hitResult.getBlockPos().asLong()) && block.getBlock() instanceof LecternBlock && player.getWorld().getBlockEntity(hitResult.getBlockPos()) instanceof LecternBlockEntity be) {
-                lecterns.remove(hitResult.getBlockPos().asLong());
-                FileManager.saveLecterns();
+            if(lecterns.contains(player.getWorld(), hitResult.getBlockPos()) && block.getBlock() instanceof LecternBlock && player.getWorld().getBlockEntity(hitResult.getBlockPos()) instanceof LecternBlockEntity be) {
+                destroyTravelersLectern(player.getWorld().getRegistryKey(), hitResult.getBlockPos().asLong());
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Makes a lectern holding a book a traveler's lectern, used by the command and the region commands.
+     */
+    public static LecternObject createTravelersLectern(World world, BlockPos pos, LecternBlockEntity be, int time, boolean perPlayer) {
+        LecternObject lectern = new LecternObject(pos.asLong(), world.getTime(), time, world.getRegistryKey(),
+                books.intern(be.getBook().encode(world.getRegistryManager()))); // we encode the item as nbt element
+        if(perPlayer) lectern.setPlayerCooldowns(new PlayerCooldowns());
+        addLectern(lectern);
+        FileManager.replicate(lectern);
+        return lectern;
+    }
+
+    /**
+     * Changes the cooldown of a traveler's lectern, and its cooldown mode unless {@code perPlayer} is null.
+     */
+    public static void editTravelersLectern(LecternObject lectern, int time, Boolean perPlayer) {
+        lectern.setCooldown(time);
+        if(perPlayer != null && perPlayer != lectern.isPerPlayer()) lectern.setPlayerCooldowns(perPlayer ? new PlayerCooldowns() : null);
+        respawnScheduler.schedule(lectern);
+        FileManager.markDirty(lectern);
+        FileManager.replicate(lectern);
+    }
+
+    /**
+     * @return whether there was a traveler's lectern to destroy
+     */
+    public static boolean destroyTravelersLectern(RegistryKey<World> worldKey, long pos) {
+        if(removeLectern(worldKey, pos) == null) return false;
+        FileManager.replicateRemoval(worldKey, pos);
+        return true;
+    }
 }
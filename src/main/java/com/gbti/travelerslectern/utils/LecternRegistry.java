@@ -0,0 +1,122 @@
+package com.gbti.travelerslectern.utils;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Every traveler's lectern on the server, keyed by dimension and packed block position.
+ * <p>
+ * Each dimension has its own primitive long keyed map so lookups never box, and lecterns at the same
+ * coordinates in different dimensions don't collide. World keys are compared by identity, which holds
+ * because {@link RegistryKey#of} interns its keys.
+ */
+public class LecternRegistry implements Iterable<LecternObject> {
+
+    private final Reference2ObjectOpenHashMap<RegistryKey<World>, Long2ObjectOpenHashMap<LecternObject>> worlds = new Reference2ObjectOpenHashMap<>();
+    private int size;
+
+    public LecternObject get(RegistryKey<World> worldKey, long pos) {
+        Long2ObjectOpenHashMap<LecternObject> lecterns = worlds.get(worldKey);
+        return lecterns == null ? null : lecterns.get(pos);
+    }
+
+    public LecternObject get(World world, BlockPos pos) {
+        return get(world.getRegistryKey(), pos.asLong());
+    }
+
+    /**
+     * Membership check for the vanilla lectern fast path, doesn't allocate.
+     */
+    public boolean contains(World world, BlockPos pos) {
+        if(size == 0) return false;
+        Long2ObjectOpenHashMap<LecternObject> lecterns = worlds.get(world.getRegistryKey());
+        return lecterns != null && lecterns.containsKey(pos.asLong());
+    }
+
+    /**
+     * Adds a lectern under its own world and position.
+     *
+     * @return the lectern previously registered there, or null
+     */
+    public LecternObject put(LecternObject lectern) {
+        LecternObject previous = worlds.computeIfAbsent(lectern.getWorldKey(), key -> new Long2ObjectOpenHashMap<>()).put(lectern.getPos(), lectern);
+        if(previous == null) size++;
+        return previous;
+    }
+
+    /**
+     * @return the removed lectern, or null if there was none
+     */
+    public LecternObject remove(RegistryKey<World> worldKey, long pos) {
+        Long2ObjectOpenHashMap<LecternObject> lecterns = worlds.get(worldKey);
+        if(lecterns == null) return null;
+
+        LecternObject removed = lecterns.remove(pos);
+        if(removed != null) {
+            size--;
+            if(lecterns.isEmpty()) worlds.remove(worldKey);
+        }
+        return removed;
+    }
+
+    /**
+     * @return the lecterns of one dimension, read only
+     */
+    public Long2ObjectMap<LecternObject> getWorld(RegistryKey<World> worldKey) {
+        Long2ObjectOpenHashMap<LecternObject> lecterns = worlds.get(worldKey);
+        return lecterns == null ? Long2ObjectMaps.emptyMap() : Long2ObjectMaps.unmodifiable(lecterns);
+    }
+
+    /**
+     * @return the dimensions holding at least one lectern, read only
+     */
+    public Set<RegistryKey<World>> getWorldKeys() {
+        return Collections.unmodifiableSet(worlds.keySet());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        worlds.clear();
+        size = 0;
+    }
+
+    /**
+     * @return a list of every lectern, for callers that change the registry while going through it
+     */
+    public List<LecternObject> toList() {
+        List<LecternObject> list = new ArrayList<>(size);
+        forEach(list::add);
+        return list;
+    }
+
+    @Override
+    public void forEach(Consumer<? super LecternObject> action) {
+        for(Long2ObjectOpenHashMap<LecternObject> lecterns : worlds.values()) {
+            for(LecternObject lectern : lecterns.values()) action.accept(lectern);
+        }
+    }
+
+    @Override
+    public Iterator<LecternObject> iterator() {
+        return worlds.values().stream().flatMap(lecterns -> lecterns.values().stream()).iterator();
+    }
+}
@@ -0,0 +1,93 @@
+package com.gbti.travelerslectern.utils;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The cooldowns of the players who took the book of a per player lectern, as a primitive map from a
+ * 64 bit player key to the world time their cooldown ends.
+ * <p>
+ * Expired entries are swept whenever the map has doubled since the last sweep, so it never holds more
+ * than about twice the players still cooling down and the sweep costs O(1) per insert on average.
+ * Entries already expired at the last time seen are also left out when saving.
+ */
+public class PlayerCooldowns {
+
+    private static final int MIN_SWEEP_SIZE = 16;
+
+    private final Long2LongOpenHashMap expiries;
+    private int sweepAt = MIN_SWEEP_SIZE;
+    private long lastSeen;
+
+    public PlayerCooldowns() {
+        this.expiries = new Long2LongOpenHashMap();
+    }
+
+    private PlayerCooldowns(Long2LongOpenHashMap expiries) {
+        this.expiries = expiries;
+    }
+
+    /**
+     * @return the 64 bit key of a player, folding the two halves of the UUID together without allocating
+     */
+    public static long key(UUID uuid) {
+        return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+    }
+
+    /**
+     * @return the number of ticks the player still has to wait, 0 if they may take the book
+     */
+    public long getRemaining(long player, long now) {
+        return Math.max(0, expiries.get(player) - now); // absent keys read as 0
+    }
+
+    public void start(long player, long now, long expiry) {
+        lastSeen = now;
+        expiries.put(player, expiry);
+        if(expiries.size() >= sweepAt) sweep(now);
+    }
+
+    private void sweep(long now) {
+        expiries.long2LongEntrySet().removeIf(entry -> entry.getLongValue() <= now);
+        expiries.trim();
+        sweepAt = Math.max(MIN_SWEEP_SIZE, expiries.size() * 2);
+    }
+
+    public int size() {
+        return expiries.size();
+    }
+
+    public PlayerCooldowns copy() {
+        PlayerCooldowns copy = new PlayerCooldowns(expiries.clone());
+        copy.sweepAt = sweepAt;
+        copy.lastSeen = lastSeen;
+        return copy;
+    }
+
+    /**
+     * @return the entries that hadn't expired when a cooldown last started, as alternating keys and expiries
+     */
+    public long[] toArray() {
+        long[] array = new long[expiries.size() * 2];
+        int i = 0;
+        for(Long2LongMap.Entry entry : expiries.long2LongEntrySet()) {
+            if(entry.getLongValue() <= lastSeen) continue;
+            array[i++] = entry.getLongKey();
+            array[i++] = entry.getLongValue();
+        }
+        return i == array.length ? array : Arrays.copyOf(array, i);
+    }
+
+    /**
+     * @param array alternating keys and expiries, as written by {@link #toArray}
+     */
+    public static PlayerCooldowns fromArray(long[] array) {
+        PlayerCooldowns cooldowns = new PlayerCooldowns(new Long2LongOpenHashMap(array.length / 2));
+        for(int i = 0; i + 1 < array.length; i += 2) cooldowns.expiries.put(array[i], array[i + 1]);
+        cooldowns.sweepAt = Math.max(MIN_SWEEP_SIZE, cooldowns.expiries.size() * 2);
+        return cooldowns;
+    }
+}
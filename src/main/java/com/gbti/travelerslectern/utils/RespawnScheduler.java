@@ -0,0 +1,194 @@
+package com.gbti.travelerslectern.utils;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Orders traveler's lecterns by the tick at which their book may next be respawned,
+ * so the server tick only has to look at lecterns whose cooldown has actually run out.
+ * <p>
+ * Re-keying a lectern does not remove its old queue entry; instead every lectern remembers
+ * the deadline it was last scheduled for and entries that no longer match are dropped when polled.
+ * <p>
+ * Lecterns that come due while their chunk isn't loaded are parked per chunk with {@link #defer}
+ * and go back in the queue when that chunk loads, so nothing ever has to load a chunk to respawn a book.
+ * <p>
+ * Deadlines can be spread by a jitter derived from the lectern and its last use, so lecterns created or used
+ * together don't all come due in the same tick, and polling can be limited to a per tick budget.
+ * Due lecterns left over by the budget simply stay in the queue for the next tick.
+ */
+public class RespawnScheduler {
+
+    public static final long UNSCHEDULED = Long.MIN_VALUE;
+    public static final long DEFERRED = Long.MIN_VALUE + 1;
+
+    @FunctionalInterface
+    public interface DueHandler {
+        void onDue(LecternObject lectern);
+    }
+
+    private record Entry(long deadline, LecternObject lectern) {}
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingLong(Entry::deadline));
+    private final List<Entry> due = new ArrayList<>();
+    private final Reference2ObjectOpenHashMap<RegistryKey<World>, Long2ObjectOpenHashMap<List<LecternObject>>> deferred = new Reference2ObjectOpenHashMap<>();
+    private int jitterTicks;
+
+    /**
+     * Sets the most ticks a deadline may be pushed back, applies to lecterns scheduled from now on.
+     */
+    public void setJitterTicks(int jitterTicks) {
+        this.jitterTicks = Math.max(0, jitterTicks);
+    }
+
+    /**
+     * @return the tick a lectern is due at, its respawn tick plus a jitter that is stable for one cooldown
+     */
+    public long getDeadline(LecternObject lectern) {
+        if(jitterTicks == 0) return lectern.getRespawnTick();
+        return lectern.getRespawnTick() + Math.floorMod(HashCommon.mix(lectern.getPos() ^ lectern.getLastTimeUsed()), jitterTicks + 1);
+    }
+
+    /**
+     * @return the tick a lectern is queued for, or its deadline if it is deferred or unscheduled right now
+     */
+    public long getDueTick(LecternObject lectern) {
+        long scheduledTick = lectern.getScheduledTick();
+        return scheduledTick > DEFERRED ? scheduledTick : getDeadline(lectern);
+    }
+
+    /**
+     * (Re)schedules a lectern for its current respawn deadline. Calling this again without the
+     * deadline having changed is a no-op.
+     */
+    public void schedule(LecternObject lectern) {
+        long deadline = getDeadline(lectern);
+        if(lectern.getScheduledTick() == deadline) return;
+
+        lectern.setScheduledTick(deadline);
+        queue.add(new Entry(deadline, lectern));
+    }
+
+    /**
+     * Removes a lectern from the schedule, its pending entry is discarded on the next poll.
+     */
+    public void unschedule(LecternObject lectern) {
+        lectern.setScheduledTick(UNSCHEDULED);
+    }
+
+    /**
+     * Parks a due lectern until its chunk loads, see {@link #onChunkLoad}.
+     */
+    public void defer(LecternObject lectern) {
+        LecternMetrics.lecternsDeferred++;
+        lectern.setScheduledTick(DEFERRED);
+        deferred.computeIfAbsent(lectern.getWorldKey(), key -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(lectern.getChunkPos(), key -> new ArrayList<>()).add(lectern);
+    }
+
+    /**
+     * Puts the lecterns deferred in a chunk back in the queue, they are handed out on the next poll.
+     */
+    public void onChunkLoad(RegistryKey<World> worldKey, long chunkPos) {
+        Long2ObjectOpenHashMap<List<LecternObject>> chunks = deferred.get(worldKey);
+        if(chunks == null) return;
+
+        List<LecternObject> lecterns = chunks.remove(chunkPos);
+        if(lecterns == null) return;
+        if(chunks.isEmpty()) deferred.remove(worldKey);
+
+        for(LecternObject lectern : lecterns) {
+            if(lectern.getScheduledTick() == DEFERRED) schedule(lectern); // otherwise removed or re-keyed in the meantime
+        }
+    }
+
+    /**
+     * Drops a lectern from the deferred lists and the schedule, for lecterns leaving memory.
+     */
+    public void undefer(LecternObject lectern) {
+        if(lectern.getScheduledTick() == DEFERRED) {
+            Long2ObjectOpenHashMap<List<LecternObject>> chunks = deferred.get(lectern.getWorldKey());
+            List<LecternObject> lecterns = chunks == null ? null : chunks.get(lectern.getChunkPos());
+            if(lecterns != null) {
+                lecterns.remove(lectern);
+                if(lecterns.isEmpty()) chunks.remove(lectern.getChunkPos());
+                if(chunks.isEmpty()) deferred.remove(lectern.getWorldKey());
+            }
+        }
+        unschedule(lectern);
+    }
+
+    public int deferredChunks() {
+        int count = 0;
+        for(Long2ObjectOpenHashMap<List<LecternObject>> chunks : deferred.values()) count += chunks.size();
+        return count;
+    }
+
+    public void rebuild(Iterable<LecternObject> lecterns) {
+        queue.clear();
+        deferred.clear();
+        for(LecternObject lectern : lecterns) {
+            lectern.setScheduledTick(UNSCHEDULED);
+            schedule(lectern);
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Hands every lectern whose deadline is at or before {@code now} to the handler. Polled lecterns
+     * are left unscheduled, the handler is expected to call {@link #schedule} again if it restarts the cooldown.
+     */
+    public void pollDue(long now, DueHandler handler) {
+        pollDue(now, handler, 0, 0);
+    }
+
+    /**
+     * Like {@link #pollDue(long, DueHandler)}, but hands out at most {@code maxLecterns} lecterns and stops once
+     * {@code maxNanos} have been spent in handlers. Whatever is left stays due and is handed out on later polls.
+     *
+     * @param maxLecterns the most lecterns to hand out, 0 for no limit
+     * @param maxNanos the time after which no more lecterns are handed out, 0 for no limit
+     * @return whether lecterns were left over for later polls
+     */
+    public boolean pollDue(long now, DueHandler handler, int maxLecterns, long maxNanos) {
+        while(!queue.isEmpty() && queue.peek().deadline() <= now && (maxLecterns <= 0 || due.size() < maxLecterns)) {
+            Entry entry = queue.poll();
+            if(entry.lectern().getScheduledTick() != entry.deadline()) continue; // stale, re-keyed or removed since
+
+            entry.lectern().setScheduledTick(UNSCHEDULED);
+            due.add(entry);
+        }
+
+        // Handled outside the drain loop so a handler rescheduling with a zero cooldown can't spin forever
+        long start = maxNanos > 0 ? System.nanoTime() : 0;
+        int handled = 0;
+        try {
+            while(handled < due.size()) {
+                handler.onDue(due.get(handled++).lectern());
+                if(maxNanos > 0 && System.nanoTime() - start >= maxNanos) break;
+            }
+        } finally {
+            // Out of time, put the rest back as they were
+            for(int i = handled; i < due.size(); i++) {
+                Entry entry = due.get(i);
+                entry.lectern().setScheduledTick(entry.deadline());
+                queue.add(entry);
+            }
+            LecternMetrics.lecternsPolled += handled;
+            due.clear();
+        }
+
+        return !queue.isEmpty() && queue.peek().deadline() <= now; // possibly a stale entry, good enough for metrics
+    }
+}
@@ -0,0 +1,84 @@
+package com.gbti.travelerslectern.utils;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.UUID;
+
+/**
+ * Limits how often each player may do something, using a sliding window: the count of the previous
+ * window is weighed by how much of it still overlaps the last {@code windowMillis}, so there is no burst
+ * at window boundaries. Each player costs one small object, allocated on their first event only.
+ * <p>
+ * Players idle for two windows are evicted every other window, and {@link #remove} drops a player
+ * right away, e.g. when they disconnect. Not thread safe, meant for the server thread.
+ */
+public class Throttle {
+
+    private static final class Window {
+        private long start;
+        private int previous;
+        private int current;
+        private long lastSeen;
+    }
+
+    private final int limit;
+    private final long windowMillis;
+    private final Long2ObjectOpenHashMap<Window> windows = new Long2ObjectOpenHashMap<>();
+    private long lastEviction;
+
+    /**
+     * @param limit the number of events allowed per window, 0 or less allows everything
+     */
+    public Throttle(int limit, long windowMillis) {
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+    }
+
+    public boolean tryAcquire(UUID player, long now) {
+        return tryAcquire(PlayerCooldowns.key(player), now);
+    }
+
+    /**
+     * Counts an event if the player is still under the limit.
+     *
+     * @return false if the event should be dropped
+     */
+    public boolean tryAcquire(long player, long now) {
+        if(limit <= 0) return true;
+        if(now - lastEviction >= windowMillis * 2) evictIdle(now);
+
+        Window window = windows.get(player);
+        if(window == null) {
+            window = new Window();
+            window.start = now;
+            windows.put(player, window);
+        }
+
+        long elapsed = now - window.start;
+        if(elapsed >= windowMillis) {
+            window.previous = elapsed >= windowMillis * 2 ? 0 : window.current;
+            window.current = 0;
+            window.start += elapsed / windowMillis * windowMillis;
+        }
+        window.lastSeen = now;
+
+        double overlap = 1.0 - (double) (now - window.start) / windowMillis;
+        if(window.previous * overlap + window.current >= limit) return false;
+
+        window.current++;
+        return true;
+    }
+
+    public void remove(UUID player) {
+        windows.remove(PlayerCooldowns.key(player));
+    }
+
+    private void evictIdle(long now) {
+        lastEviction = now;
+        windows.values().removeIf(window -> now - window.lastSeen >= windowMillis * 2);
+    }
+
+    public int size() {
+        return windows.size();
+    }
+}
@@ -0,0 +1,205 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.utils.LecternObject;
+import com.gbti.travelerslectern.utils.LecternRegistry;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CooldownJournalTest {
+
+    private static final RegistryKey<World> OVERWORLD = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("minecraft", "overworld"));
+    private static final RegistryKey<World> NETHER = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("minecraft", "the_nether"));
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private CooldownJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("travelers_lecterns.journal");
+        journal = new CooldownJournal(file);
+    }
+
+    private static LecternObject lectern(RegistryKey<World> world, int x, long lastTimeUsed) {
+        return new LecternObject(BlockPos.asLong(x, 64, 0), lastTimeUsed, 60, world, null);
+    }
+
+    /**
+     * Appends the current timestamps of the lecterns, the way the server tick does.
+     */
+    private void append(LecternObject... lecterns) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CooldownJournal.RECORD_SIZE * lecterns.length);
+        for(LecternObject lectern : lecterns) journal.encode(buffer, lectern);
+        journal.append(buffer.array(), buffer.position());
+    }
+
+    /**
+     * @return a registry holding a copy of the lecterns, as loaded from the last snapshot
+     */
+    private static LecternRegistry snapshot(LecternObject... lecterns) {
+        LecternRegistry registry = new LecternRegistry();
+        for(LecternObject lectern : lecterns) registry.put(lectern.copy());
+        return registry;
+    }
+
+    @Test
+    void replaysAppendedTimestamps() throws IOException {
+        LecternObject first = lectern(OVERWORLD, 0, 100);
+        LecternObject second = lectern(OVERWORLD, 1, 200);
+        LecternRegistry registry = snapshot(first, second);
+
+        first.setLastTimeUsed(1_000);
+        append(first);
+        second.setLastTimeUsed(2_000);
+        first.setLastTimeUsed(3_000);
+        append(second, first);
+
+        assertEquals(3, journal.replay(registry));
+        assertEquals(3_000, registry.get(OVERWORLD, first.getPos()).getLastTimeUsed());
+        assertEquals(2_000, registry.get(OVERWORLD, second.getPos()).getLastTimeUsed());
+    }
+
+    @Test
+    void replayOnlyMovesTimestampsForward() throws IOException {
+        LecternObject lectern = lectern(OVERWORLD, 0, 100);
+        append(lectern); // already part of the snapshot below
+
+        lectern.setLastTimeUsed(5_000);
+        LecternRegistry registry = snapshot(lectern);
+
+        assertEquals(0, journal.replay(registry));
+        assertEquals(5_000, registry.get(OVERWORLD, lectern.getPos()).getLastTimeUsed());
+
+        lectern.setLastTimeUsed(6_000);
+        append(lectern);
+        assertEquals(1, journal.replay(registry));
+        assertEquals(6_000, registry.get(OVERWORLD, lectern.getPos()).getLastTimeUsed());
+    }
+
+    @Test
+    void recordsOnlyApplyToTheirDimension() throws IOException {
+        LecternObject overworld = lectern(OVERWORLD, 0, 100);
+        LecternObject nether = lectern(NETHER, 0, 100);
+        LecternRegistry registry = snapshot(overworld, nether);
+
+        nether.setLastTimeUsed(900);
+        append(nether);
+
+        assertEquals(1, journal.replay(registry));
+        assertEquals(100, registry.get(OVERWORLD, overworld.getPos()).getLastTimeUsed());
+        assertEquals(900, registry.get(NETHER, nether.getPos()).getLastTimeUsed());
+    }
+
+    @Test
+    void matchesWorldsWithTheSameHash() throws IOException {
+        RegistryKey<World> first = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("test", "ao"));
+        RegistryKey<World> second = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("test", "c1"));
+        assertEquals(first.getValue().hashCode(), second.getValue().hashCode());
+
+        LecternObject lectern = lectern(first, 0, 100);
+        LecternObject other = lectern(second, 0, 100);
+        LecternRegistry registry = snapshot(lectern, other);
+
+        other.setLastTimeUsed(900);
+        append(other);
+
+        assertEquals(1, journal.replay(registry));
+        assertEquals(100, registry.get(first, lectern.getPos()).getLastTimeUsed());
+        assertEquals(900, registry.get(second, other.getPos()).getLastTimeUsed());
+    }
+
+    @Test
+    void worldIdsStartOverAfterARestart() throws IOException {
+        LecternObject overworld = lectern(OVERWORLD, 0, 100);
+        LecternObject nether = lectern(NETHER, 0, 100);
+        LecternRegistry registry = snapshot(overworld, nether);
+
+        overworld.setLastTimeUsed(1_000);
+        append(overworld);
+
+        // The next server numbers the nether first, with the id the overworld had
+        journal = new CooldownJournal(file);
+        nether.setLastTimeUsed(2_000);
+        append(nether);
+
+        assertEquals(2, journal.replay(registry));
+        assertEquals(1_000, registry.get(OVERWORLD, overworld.getPos()).getLastTimeUsed());
+        assertEquals(2_000, registry.get(NETHER, nether.getPos()).getLastTimeUsed());
+    }
+
+    @Test
+    void ignoresATruncatedFinalRecord() throws IOException {
+        LecternObject first = lectern(OVERWORLD, 0, 100);
+        LecternObject second = lectern(OVERWORLD, 1, 100);
+        LecternRegistry registry = snapshot(first, second);
+
+        first.setLastTimeUsed(1_000);
+        second.setLastTimeUsed(2_000);
+        append(first, second);
+
+        // A crash in the middle of writing the second record
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - CooldownJournal.RECORD_SIZE / 2);
+        }
+
+        assertEquals(1, journal.replay(registry));
+        assertEquals(1_000, registry.get(OVERWORLD, first.getPos()).getLastTimeUsed());
+        assertEquals(100, registry.get(OVERWORLD, second.getPos()).getLastTimeUsed());
+    }
+
+    @Test
+    void skipsLecternsMissingFromTheSnapshot() throws IOException {
+        LecternObject destroyed = lectern(OVERWORLD, 0, 100);
+        destroyed.setLastTimeUsed(1_000);
+        append(destroyed);
+
+        assertEquals(0, journal.replay(new LecternRegistry()));
+    }
+
+    @Test
+    void startsOverOnceTheSnapshotIsWritten() throws IOException {
+        LecternObject lectern = lectern(OVERWORLD, 0, 100);
+        lectern.setLastTimeUsed(1_000);
+        append(lectern);
+        assertTrue(journal.exists());
+
+        // The snapshot written now holds 1000, so the journal is dropped
+        journal.truncate();
+        assertFalse(journal.exists());
+        LecternRegistry registry = snapshot(lectern);
+        assertEquals(0, journal.replay(registry));
+
+        lectern.setLastTimeUsed(2_000);
+        append(lectern);
+        assertEquals(1, journal.replay(registry));
+        assertEquals(2_000, registry.get(OVERWORLD, lectern.getPos()).getLastTimeUsed());
+        int world = Integer.BYTES * 2 + Short.BYTES + "minecraft:overworld".length();
+        assertEquals(Integer.BYTES + world + CooldownJournal.RECORD_SIZE, Files.size(file));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotAJournal() throws IOException {
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> journal.replay(new LecternRegistry()));
+    }
+}
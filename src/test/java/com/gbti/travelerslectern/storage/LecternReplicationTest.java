@@ -0,0 +1,140 @@
+package com.gbti.travelerslectern.storage;
+
+import com.gbti.travelerslectern.utils.BookStore;
+import com.gbti.travelerslectern.utils.LecternObject;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Servers sharing a replication log, each applying what it reads the way {@link LecternReplicator} does.
+ */
+class LecternReplicationTest {
+
+    private static final RegistryKey<World> OVERWORLD = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("minecraft", "overworld"));
+    private static final long POS = BlockPos.asLong(0, 64, 0);
+
+    @TempDir
+    Path directory;
+
+    private BookStore.Book book;
+
+    @BeforeEach
+    void setUp() {
+        NbtCompound nbt = new NbtCompound();
+        nbt.putString("id", "minecraft:written_book");
+        book = new BookStore().intern(nbt);
+    }
+
+    /**
+     * A server keeping only the cooldowns of its lecterns.
+     */
+    private final class Server {
+        private final String id;
+        private final ReplicationLog log = new ReplicationLog(directory.resolve("travelers_lecterns.log"));
+        private final LocalEdits localEdits = new LocalEdits();
+        private final Long2IntOpenHashMap cooldowns = new Long2IntOpenHashMap();
+        private ReplicationLog.Position position = ReplicationLog.Position.START;
+
+        private Server(String id) {
+            this.id = id;
+        }
+
+        void edit(long pos, int cooldown) throws IOException {
+            cooldowns.put(pos, cooldown);
+            log.append(List.of(ReplicationLog.encode(id, new LecternObject(pos, 0, cooldown, OVERWORLD, book))));
+            localEdits.record(OVERWORLD, pos);
+        }
+
+        void destroy(long pos) throws IOException {
+            cooldowns.remove(pos);
+            log.append(List.of(ReplicationLog.encodeRemoval(id, OVERWORLD, pos)));
+            localEdits.record(OVERWORLD, pos);
+        }
+
+        List<ReplicationLog.Change> read() throws IOException {
+            List<ReplicationLog.Change> changes = new ArrayList<>();
+            position = log.read(position, changes);
+            return changes;
+        }
+
+        void apply(List<ReplicationLog.Change> changes, long mark) {
+            for(ReplicationLog.Change change : changes) {
+                if(localEdits.isNewer(change.world(), change.pos(), mark)) continue;
+                if(change.isRemoval()) cooldowns.remove(change.pos());
+                else cooldowns.put(change.pos(), change.cooldown());
+            }
+            localEdits.forget(mark);
+        }
+
+        void poll() throws IOException {
+            long mark = localEdits.mark();
+            apply(read(), mark);
+        }
+    }
+
+    @Test
+    void serversEditingTheSameLecternAgreeOnTheLastChange() throws IOException {
+        Server first = new Server("first");
+        Server second = new Server("second");
+
+        first.edit(POS, 10);
+        second.edit(POS, 20);
+        first.poll();
+        second.poll();
+
+        assertEquals(20, first.cooldowns.get(POS));
+        assertEquals(20, second.cooldowns.get(POS));
+        assertEquals(0, first.localEdits.size());
+    }
+
+    @Test
+    void editsMadeWhileAReadIsPendingWinEverywhere() throws IOException {
+        Server first = new Server("first");
+        Server second = new Server("second");
+        first.edit(POS, 10);
+        second.edit(POS, 20);
+
+        long mark = first.localEdits.mark();
+        List<ReplicationLog.Change> changes = first.read();
+        first.edit(POS, 30); // before what was read is applied
+        first.apply(changes, mark);
+        assertEquals(30, first.cooldowns.get(POS));
+
+        second.poll();
+        first.poll();
+        assertEquals(30, first.cooldowns.get(POS));
+        assertEquals(30, second.cooldowns.get(POS));
+    }
+
+    @Test
+    void removalsRaceLikeEdits() throws IOException {
+        Server first = new Server("first");
+        Server second = new Server("second");
+        first.edit(POS, 10);
+        second.poll();
+
+        second.edit(POS, 20);
+        first.destroy(POS);
+        first.poll();
+        second.poll();
+
+        assertFalse(first.cooldowns.containsKey(POS));
+        assertFalse(second.cooldowns.containsKey(POS));
+    }
+}
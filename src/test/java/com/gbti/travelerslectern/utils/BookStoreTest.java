@@ -0,0 +1,135 @@
+package com.gbti.travelerslectern.utils;
+
+import com.gbti.travelerslectern.storage.BookBlobFile;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.registry.BuiltinRegistries;
+import net.minecraft.registry.RegistryWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookStoreTest {
+
+    private static final long MEMORY_CAP = 4096;
+
+    private static RegistryWrapper.WrapperLookup registries;
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService ioExecutor;
+    private BookStore store;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        registries = BuiltinRegistries.createWrapperLookup();
+    }
+
+    @BeforeEach
+    void setUp() {
+        ioExecutor = Executors.newSingleThreadExecutor();
+        store = new BookStore();
+        store.setMemoryCap(MEMORY_CAP, new BookBlobFile(directory.resolve("books.blob")), ioExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * The NBT of a written book with pages of about 100 characters.
+     */
+    private static NbtCompound writtenBook(String title, int pages) {
+        NbtList pageList = new NbtList();
+        for(int i = 0; i < pages; i++) pageList.add(NbtString.of(title.repeat(100 / title.length() + 1)));
+
+        NbtCompound content = new NbtCompound();
+        content.putString("title", title);
+        content.putString("author", "gbti-network");
+        content.put("pages", pageList);
+
+        NbtCompound components = new NbtCompound();
+        components.put("minecraft:written_book_content", content);
+
+        NbtCompound item = new NbtCompound();
+        item.putString("id", "minecraft:written_book");
+        item.putInt("count", 1);
+        item.put("components", components);
+        return item;
+    }
+
+    /**
+     * Waits for the payloads queued so far to be written to the blob file.
+     */
+    private void awaitWrites() throws Exception {
+        ioExecutor.submit(() -> {}).get();
+    }
+
+    @Test
+    void booksLargerThanTheCapAreDecodedWhenReadBack() throws Exception {
+        BookStore.Book book = store.acquire(writtenBook("Atlas", 40));
+        assertTrue(book.getNbt().getSizeInBytes() > MEMORY_CAP);
+        assertTrue(book.isResident());
+
+        awaitWrites();
+        store.trim();
+        assertFalse(book.isResident());
+        assertEquals(0, store.getResidentBytes());
+
+        // Read back on its own it is over the cap, but it stays until it has been decoded
+        ItemStack template = book.getTemplate(registries);
+        assertEquals(Items.WRITTEN_BOOK, template.getItem());
+        assertTrue(book.isResident());
+
+        store.trim();
+        assertFalse(book.isResident());
+        assertEquals(Items.WRITTEN_BOOK, book.getTemplate(registries).getItem());
+    }
+
+    @Test
+    void booksReadBackStayWhileEveryOtherBookIsUnwritten() throws Exception {
+        BookStore.Book first = store.acquire(writtenBook("Atlas", 2));
+        awaitWrites();
+
+        // Holds the IO thread, so the next book stays unwritten and can't be evicted
+        CountDownLatch release = new CountDownLatch(1);
+        ioExecutor.submit(() -> {
+            release.await();
+            return null;
+        });
+        try {
+            BookStore.Book large = store.acquire(writtenBook("Bestiary", 40));
+            assertFalse(first.isResident());
+            assertTrue(large.isResident());
+            assertTrue(store.getResidentBytes() > MEMORY_CAP);
+
+            ItemStack template = first.getTemplate(registries);
+            assertEquals(Items.WRITTEN_BOOK, template.getItem());
+            assertTrue(first.isResident());
+            assertSame(template, first.getTemplate(registries));
+        } finally {
+            release.countDown();
+        }
+    }
+}
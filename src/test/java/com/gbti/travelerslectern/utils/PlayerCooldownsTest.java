@@ -0,0 +1,95 @@
+package com.gbti.travelerslectern.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PlayerCooldownsTest {
+
+    @Test
+    void remainingTimeRunsOutAtTheExactDeadline() {
+        PlayerCooldowns cooldowns = new PlayerCooldowns();
+        cooldowns.start(1, 100, 700);
+
+        assertEquals(600, cooldowns.getRemaining(1, 100));
+        assertEquals(1, cooldowns.getRemaining(1, 699));
+        assertEquals(0, cooldowns.getRemaining(1, 700));
+        assertEquals(0, cooldowns.getRemaining(1, 701));
+    }
+
+    @Test
+    void playersWithoutACooldownMayTakeTheBook() {
+        PlayerCooldowns cooldowns = new PlayerCooldowns();
+        cooldowns.start(1, 100, 700);
+        assertEquals(0, cooldowns.getRemaining(2, 100));
+    }
+
+    @Test
+    void restartingReplacesTheDeadline() {
+        PlayerCooldowns cooldowns = new PlayerCooldowns();
+        cooldowns.start(1, 100, 700);
+        cooldowns.start(1, 800, 1400);
+
+        assertEquals(1, cooldowns.size());
+        assertEquals(600, cooldowns.getRemaining(1, 800));
+    }
+
+    @Test
+    void prunesExpiredEntriesOnceTheMapDoubled() {
+        PlayerCooldowns cooldowns = new PlayerCooldowns();
+        for(int player = 0; player < 15; player++) cooldowns.start(player, player, 10 + player); // all over by tick 100
+        assertEquals(15, cooldowns.size());
+
+        cooldowns.start(100, 100, 700); // the 16th entry triggers a sweep
+        assertEquals(1, cooldowns.size());
+        assertEquals(600, cooldowns.getRemaining(100, 100));
+    }
+
+    @Test
+    void prunesEntriesExpiringAtTheSweep() {
+        PlayerCooldowns cooldowns = new PlayerCooldowns();
+        cooldowns.start(0, 0, 100); // over exactly when the sweep runs
+        for(int player = 1; player < 15; player++) cooldowns.start(player, 0, 1000);
+
+        cooldowns.start(15, 100, 1000);
+        assertEquals(15, cooldowns.size());
+        assertEquals(0, cooldowns.getRemaining(0, 100));
+    }
+
+    @Test
+    void savesOnlyEntriesStillCoolingDown() {
+        PlayerCooldowns cooldowns = new PlayerCooldowns();
+        cooldowns.start(1, 0, 50);
+        cooldowns.start(2, 100, 700); // player 1 is over by now
+
+        long[] saved = cooldowns.toArray();
+        assertArrayEquals(new long[] {2, 700}, saved);
+
+        PlayerCooldowns loaded = PlayerCooldowns.fromArray(saved);
+        assertEquals(1, loaded.size());
+        assertEquals(600, loaded.getRemaining(2, 100));
+        assertEquals(0, loaded.getRemaining(1, 100));
+    }
+
+    @Test
+    void copiesAreDetached() {
+        PlayerCooldowns cooldowns = new PlayerCooldowns();
+        cooldowns.start(1, 0, 100);
+        PlayerCooldowns copy = cooldowns.copy();
+
+        cooldowns.start(2, 0, 100);
+        assertEquals(1, copy.size());
+        assertEquals(2, cooldowns.size());
+    }
+
+    @Test
+    void keysFoldBothHalvesOfTheUuid() {
+        UUID player = new UUID(0x1234L, 0xFF00L);
+        assertEquals(0x1234L ^ 0xFF00L, PlayerCooldowns.key(player));
+        assertNotEquals(PlayerCooldowns.key(player), PlayerCooldowns.key(new UUID(0x1234L, 0xFF01L)));
+    }
+}
@@ -0,0 +1,254 @@
+package com.gbti.travelerslectern.utils;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RespawnSchedulerTest {
+
+    private static final RegistryKey<World> OVERWORLD = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("minecraft", "overworld"));
+    private static final RegistryKey<World> NETHER = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("minecraft", "the_nether"));
+
+    private RespawnScheduler scheduler;
+    private List<LecternObject> handed;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new RespawnScheduler();
+        handed = new ArrayList<>();
+    }
+
+    /**
+     * A lectern at block x, 64, z whose book may be respawned at {@code lastTimeUsed + cooldown * 20}.
+     */
+    private static LecternObject lectern(RegistryKey<World> world, int x, int z, long lastTimeUsed, int cooldown) {
+        return new LecternObject(BlockPos.asLong(x, 64, z), lastTimeUsed, cooldown, world, null);
+    }
+
+    private static LecternObject lectern(int x, long lastTimeUsed, int cooldown) {
+        return lectern(OVERWORLD, x, 0, lastTimeUsed, cooldown);
+    }
+
+    @Test
+    void handsOutLecternsOnceTheirDeadlinePassed() {
+        LecternObject early = lectern(0, 0, 1);  // due at 20
+        LecternObject late = lectern(1, 0, 10);  // due at 200
+        scheduler.schedule(late);
+        scheduler.schedule(early);
+
+        scheduler.pollDue(19, handed::add);
+        assertTrue(handed.isEmpty());
+
+        scheduler.pollDue(20, handed::add);
+        assertEquals(List.of(early), handed);
+
+        scheduler.pollDue(1000, handed::add);
+        assertEquals(List.of(early, late), handed);
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void polledLecternsStayUnscheduledUntilScheduledAgain() {
+        LecternObject lectern = lectern(0, 0, 1);
+        scheduler.schedule(lectern);
+
+        scheduler.pollDue(20, handed::add);
+        assertEquals(RespawnScheduler.UNSCHEDULED, lectern.getScheduledTick());
+
+        scheduler.pollDue(10_000, handed::add);
+        assertEquals(1, handed.size());
+
+        // E.g. the book taken from the lectern screen, the deadline is already past so it is due right away
+        scheduler.schedule(lectern);
+        scheduler.pollDue(10_000, handed::add);
+        assertEquals(2, handed.size());
+    }
+
+    @Test
+    void schedulingTheSameDeadlineTwiceQueuesOneEntry() {
+        LecternObject lectern = lectern(0, 0, 1);
+        scheduler.schedule(lectern);
+        scheduler.schedule(lectern);
+
+        assertEquals(1, scheduler.size());
+        scheduler.pollDue(20, handed::add);
+        assertEquals(List.of(lectern), handed);
+    }
+
+    @Test
+    void staleEntriesAreDroppedWhenALecternIsRekeyed() {
+        LecternObject lectern = lectern(0, 0, 1);
+        scheduler.schedule(lectern); // due at 20
+
+        lectern.setLastTimeUsed(100);
+        scheduler.schedule(lectern); // due at 120, the entry for 20 is stale
+        assertEquals(2, scheduler.size());
+
+        scheduler.pollDue(50, handed::add);
+        assertTrue(handed.isEmpty());
+        assertEquals(1, scheduler.size());
+
+        scheduler.pollDue(120, handed::add);
+        assertEquals(List.of(lectern), handed);
+    }
+
+    @Test
+    void unscheduledLecternsAreNeverHandedOut() {
+        LecternObject lectern = lectern(0, 0, 1);
+        scheduler.schedule(lectern);
+        scheduler.unschedule(lectern);
+
+        scheduler.pollDue(1000, handed::add);
+        assertTrue(handed.isEmpty());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void deferredLecternsComeBackWhenTheirChunkLoads() {
+        LecternObject lectern = lectern(OVERWORLD, 40, 40, 0, 1); // chunk 2, 2
+        LecternObject other = lectern(OVERWORLD, 0, 0, 0, 1);    // chunk 0, 0
+        scheduler.defer(lectern);
+        scheduler.defer(other);
+        assertEquals(RespawnScheduler.DEFERRED, lectern.getScheduledTick());
+        assertEquals(2, scheduler.deferredChunks());
+
+        scheduler.onChunkLoad(NETHER, lectern.getChunkPos()); // same chunk, other dimension
+        scheduler.onChunkLoad(OVERWORLD, lectern.getChunkPos());
+        assertEquals(1, scheduler.deferredChunks());
+
+        scheduler.pollDue(1000, handed::add);
+        assertEquals(List.of(lectern), handed);
+        assertEquals(RespawnScheduler.DEFERRED, other.getScheduledTick());
+    }
+
+    @Test
+    void undeferredLecternsStayOutWhenTheirChunkLoads() {
+        LecternObject lectern = lectern(0, 0, 1);
+        scheduler.defer(lectern);
+        scheduler.undefer(lectern);
+
+        assertEquals(0, scheduler.deferredChunks());
+        assertEquals(RespawnScheduler.UNSCHEDULED, lectern.getScheduledTick());
+
+        scheduler.onChunkLoad(OVERWORLD, lectern.getChunkPos());
+        scheduler.pollDue(1000, handed::add);
+        assertTrue(handed.isEmpty());
+    }
+
+    @Test
+    void lecternsRescheduledWhileDeferredAreNotQueuedTwice() {
+        LecternObject lectern = lectern(0, 0, 1);
+        scheduler.defer(lectern);
+
+        lectern.setLastTimeUsed(500);
+        scheduler.schedule(lectern); // e.g. edited while its chunk was away
+        scheduler.onChunkLoad(OVERWORLD, lectern.getChunkPos());
+
+        assertEquals(1, scheduler.size());
+        scheduler.pollDue(520, handed::add);
+        assertEquals(List.of(lectern), handed);
+    }
+
+    @Test
+    void rebuildStartsOverFromTheGivenLecterns() {
+        LecternObject deferred = lectern(0, 0, 1);
+        LecternObject queued = lectern(1, 0, 1);
+        scheduler.defer(deferred);
+        scheduler.schedule(queued);
+
+        LecternObject kept = lectern(2, 0, 2);
+        scheduler.rebuild(List.of(deferred, kept));
+
+        assertEquals(0, scheduler.deferredChunks());
+        assertEquals(2, scheduler.size());
+        scheduler.pollDue(1000, handed::add);
+        assertEquals(List.of(deferred, kept), handed);
+    }
+
+    @Test
+    void pollingStopsAtTheLecternBudget() {
+        List<LecternObject> lecterns = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            LecternObject lectern = lectern(i, i, 1);
+            lecterns.add(lectern);
+            scheduler.schedule(lectern);
+        }
+
+        assertTrue(scheduler.pollDue(1000, handed::add, 2, 0));
+        assertEquals(lecterns.subList(0, 2), handed);
+
+        assertTrue(scheduler.pollDue(1000, handed::add, 2, 0));
+        assertEquals(lecterns.subList(0, 4), handed);
+
+        assertFalse(scheduler.pollDue(1000, handed::add, 2, 0));
+        assertEquals(lecterns, handed);
+    }
+
+    @Test
+    void lecternsLeftOverByTheTimeBudgetStayDue() {
+        for(int i = 0; i < 3; i++) scheduler.schedule(lectern(i, 0, 1));
+
+        // The smallest time budget runs out after the first handler, which waits for the clock to move
+        assertTrue(scheduler.pollDue(1000, due -> {
+            handed.add(due);
+            long start = System.nanoTime();
+            while(System.nanoTime() == start);
+        }, 0, 1));
+        assertEquals(1, handed.size());
+        assertEquals(2, scheduler.size());
+
+        scheduler.pollDue(1000, handed::add);
+        assertEquals(3, handed.size());
+    }
+
+    @Test
+    void handlersRescheduledWithoutCooldownWaitForTheNextPoll() {
+        LecternObject lectern = lectern(0, 0, 0);
+        scheduler.schedule(lectern);
+
+        scheduler.pollDue(100, due -> {
+            handed.add(due);
+            due.setLastTimeUsed(100);
+            scheduler.schedule(due); // due again right away
+        });
+        assertEquals(1, handed.size());
+        assertEquals(100, lectern.getScheduledTick());
+    }
+
+    @Test
+    void jitterDelaysDeadlinesWithinTheConfiguredTicks() {
+        scheduler.setJitterTicks(40);
+        for(int i = 0; i < 100; i++) {
+            LecternObject lectern = lectern(i, i * 7L, 1);
+            long deadline = scheduler.getDeadline(lectern);
+            assertTrue(deadline >= lectern.getRespawnTick() && deadline <= lectern.getRespawnTick() + 40);
+            assertEquals(deadline, scheduler.getDeadline(lectern));
+        }
+    }
+
+    @Test
+    void dueTickIsTheQueuedDeadlineOrTheNextOne() {
+        scheduler.setJitterTicks(40);
+        LecternObject lectern = lectern(3, 0, 1);
+        long deadline = scheduler.getDeadline(lectern);
+        assertEquals(deadline, scheduler.getDueTick(lectern));
+
+        scheduler.schedule(lectern);
+        assertEquals(deadline, lectern.getScheduledTick());
+        assertEquals(deadline, scheduler.getDueTick(lectern));
+
+        scheduler.defer(lectern);
+        assertEquals(deadline, scheduler.getDueTick(lectern));
+    }
+}
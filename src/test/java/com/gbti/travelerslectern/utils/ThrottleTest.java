@@ -0,0 +1,91 @@
+package com.gbti.travelerslectern.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThrottleTest {
+
+    private static final long START = 10_000;
+
+    private static int acquire(Throttle throttle, long player, long now, int attempts) {
+        int acquired = 0;
+        for(int i = 0; i < attempts; i++) {
+            if(throttle.tryAcquire(player, now)) acquired++;
+        }
+        return acquired;
+    }
+
+    @Test
+    void allowsTheLimitPerWindow() {
+        Throttle throttle = new Throttle(10, 1000);
+        assertEquals(10, acquire(throttle, 1, START, 20));
+        assertFalse(throttle.tryAcquire(1, START + 999));
+    }
+
+    @Test
+    void limitsEveryPlayerOnTheirOwn() {
+        Throttle throttle = new Throttle(3, 1000);
+        assertEquals(3, acquire(throttle, 1, START, 5));
+        assertEquals(3, acquire(throttle, 2, START, 5));
+        assertTrue(throttle.tryAcquire(UUID.randomUUID(), START));
+        assertEquals(3, throttle.size());
+    }
+
+    @Test
+    void refillsAsThePreviousWindowSlidesOut() {
+        Throttle throttle = new Throttle(10, 1000);
+        assertEquals(10, acquire(throttle, 1, START, 10));
+
+        // Right after the window the previous one still counts in full
+        assertFalse(throttle.tryAcquire(1, START + 1000));
+        // Half way through the next window half of it is left
+        assertEquals(5, acquire(throttle, 1, START + 1500, 10));
+        // Once a whole window is over the previous one only weighs what still overlaps
+        assertEquals(9, acquire(throttle, 1, START + 2700, 10)); // 5 * 0.3 + 8 < 10, 5 * 0.3 + 9 >= 10
+    }
+
+    @Test
+    void startsFreshAfterTwoIdleWindows() {
+        Throttle throttle = new Throttle(10, 1000);
+        assertEquals(10, acquire(throttle, 1, START, 10));
+        assertEquals(10, acquire(throttle, 1, START + 2000, 20));
+    }
+
+    @Test
+    void noLimitAllowsEverything() {
+        Throttle throttle = new Throttle(0, 1000);
+        assertEquals(1000, acquire(throttle, 1, START, 1000));
+        assertEquals(0, throttle.size());
+    }
+
+    @Test
+    void evictsPlayersIdleForTwoWindows() {
+        Throttle throttle = new Throttle(5, 1000);
+        throttle.tryAcquire(1, START);
+        throttle.tryAcquire(2, START + 500);
+        assertEquals(2, throttle.size());
+
+        throttle.tryAcquire(3, START + 2000); // player 1 idle for two windows, player 2 not yet
+        assertEquals(2, throttle.size());
+
+        throttle.tryAcquire(3, START + 4000);
+        assertEquals(1, throttle.size());
+    }
+
+    @Test
+    void removesDisconnectedPlayers() {
+        Throttle throttle = new Throttle(1, 1000);
+        UUID player = UUID.randomUUID();
+        assertTrue(throttle.tryAcquire(player, START));
+        assertFalse(throttle.tryAcquire(player, START));
+
+        throttle.remove(player);
+        assertEquals(0, throttle.size());
+        assertTrue(throttle.tryAcquire(player, START));
+    }
+}